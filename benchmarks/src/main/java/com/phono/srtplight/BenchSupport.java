@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketException;
+import java.util.Properties;
+
+/**
+ * Fixed keys and a socket that goes nowhere, shared by the benchmarks.
+ */
+class BenchSupport {
+
+    // master key || salt - made up, the length picks the suite's key size
+    final static String KEY128 = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwd";
+    final static String KEY256 = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8gISIjJCUmJygpKissLQ==";
+    final static String KEYGCM128 = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGw==";
+    final static String KEYGCM256 = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8gISIjJCUmJygpKis=";
+
+    final static long SSRC = 0x12345678L;
+    final static int PTYPE = 96;
+
+    static Properties cryptoProps(String suite) {
+        String key;
+        switch (suite) {
+            case "AES_CM_128_HMAC_SHA1_80":
+            case "AES_CM_128_HMAC_SHA1_32":
+                key = KEY128;
+                break;
+            case "AES_256_CM_HMAC_SHA1_80":
+            case "AES_256_CM_HMAC_SHA1_32":
+                key = KEY256;
+                break;
+            case "AEAD_AES_128_GCM":
+                key = KEYGCM128;
+                break;
+            case "AEAD_AES_256_GCM":
+                key = KEYGCM256;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown suite " + suite);
+        }
+        Properties p = new Properties();
+        try {
+            p.load(new StringReader("crypto-suite=" + suite + "\nrequired=1\nkey-params=inline:" + key + "\n"));
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return p;
+    }
+
+    /*
+     sessions want a socket, the benchmarks call protect/unprotect directly
+     so nothing should reach it - but if it does it is dropped.
+     */
+    static DatagramSocket nullSocket() throws SocketException {
+        return new DatagramSocket() {
+            @Override
+            public void send(DatagramPacket dp) {
+            }
+        };
+    }
+
+    /*
+     a complete clear RTP packet with room for the tag after the limit.
+     */
+    static int writePacket(byte[] out, char seqno, long stamp, int payloadLen) {
+        int o = RtpHeader.write(out, 0, false, PTYPE, seqno, stamp, SSRC, null, -1, null, 0);
+        for (int i = 0; i < payloadLen; i++) {
+            out[o + i] = (byte) i;
+        }
+        return o + payloadLen;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BitUtils word at a time get/put against the original bit at a time code,
+ * over the field widths an RTP header uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitUtilsBench {
+
+    byte[] _buf = new byte[64];
+    int _n;
+
+    @Benchmark
+    public long getBits() {
+        int p = _n++ & 127;
+        return BitUtils.getBits(_buf, p, 32) + BitUtils.getBits(_buf, p + 32, 16) + BitUtils.getBits(_buf, p + 9, 7);
+    }
+
+    @Benchmark
+    public long getBitsReference() {
+        int p = _n++ & 127;
+        return BitUtils.refGetBits(_buf, p, 32) + BitUtils.refGetBits(_buf, p + 32, 16) + BitUtils.refGetBits(_buf, p + 9, 7);
+    }
+
+    @Benchmark
+    public int putBits() {
+        int p = _n++ & 127;
+        BitUtils.putBits(_n, 32, _buf, p);
+        BitUtils.putBits(_n, 16, _buf, p + 32);
+        return BitUtils.putBits(_n, 7, _buf, p + 9);
+    }
+
+    @Benchmark
+    public int putBitsReference() {
+        int p = _n++ & 127;
+        BitUtils.refCopyBits(_n, 32, _buf, p);
+        BitUtils.refCopyBits(_n, 16, _buf, p + 32);
+        return BitUtils.refCopyBits(_n, 7, _buf, p + 9);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A per packet VERB message with logging at the default (WARN) level, the way
+ * the RTP and RTCP paths write it. Run with -prof gc - the guarded and
+ * non-capturing forms should show 0 B/op, the eager and capturing ones don't.
+ * Escape analysis is off, it can remove the allocations here that it can't
+ * in the real call sites.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:-DoEscapeAnalysis")
+public class LogBench {
+
+    // a LogFace held directly, as an app's own logger would be
+    static class Face implements LogFace {
+
+        int _n;
+
+        public void e(String message) {
+            _n += message.length();
+        }
+
+        public void d(String message) {
+            _n += message.length();
+        }
+
+        public void w(String message) {
+            _n += message.length();
+        }
+
+        public void v(String message) {
+            _n += message.length();
+        }
+
+        public void i(String message) {
+            _n += message.length();
+        }
+    }
+
+    int _level;
+    Face _face = new Face();
+    int _seqno;
+    long _stamp;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        _level = Log.getLevel();
+        Log.setLevel(Log.WARN);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Log.setLevel(_level);
+    }
+
+    @Benchmark
+    public int eager() {
+        int s = ++_seqno;
+        long t = _stamp += 160;
+        Log.verb("packet seqno " + s + " stamp " + t);
+        return s;
+    }
+
+    @Benchmark
+    public int guarded() {
+        int s = ++_seqno;
+        long t = _stamp += 160;
+        if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("packet seqno " + s + " stamp " + t);
+        }
+        return s;
+    }
+
+    @Benchmark
+    public int capturingSupplier() {
+        int s = ++_seqno;
+        long t = _stamp += 160;
+        Log.verb(() -> "packet seqno " + s + " stamp " + t);
+        return s;
+    }
+
+    @Benchmark
+    public int constantSupplier() {
+        Log.verb(() -> "packet");
+        return ++_seqno;
+    }
+
+    @Benchmark
+    public int format() {
+        int s = ++_seqno;
+        long t = _stamp += 160;
+        Log.verb("packet seqno %d stamp %d", s, t);
+        return s;
+    }
+
+    @Benchmark
+    public int faceSupplier() {
+        _face.v(() -> "packet");
+        return ++_seqno;
+    }
+}
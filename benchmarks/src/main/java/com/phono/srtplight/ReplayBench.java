@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SRTP replay list - check and update for in order and reordered packets,
+ * and the cost of turning a replay away, for each replay window size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBench {
+
+    // each group of 16 arrives shuffled - all well inside the window
+    final static int[] JITTER = {3, 0, 1, 2, 7, 4, 6, 5, 11, 8, 9, 10, 15, 12, 14, 13};
+
+    @Param({"64", "128", "1024"})
+    public int window;
+
+    java.net.DatagramSocket _ds;
+    SRTPProtocolImpl _inOrder;
+    SRTPProtocolImpl _reordered;
+    SRTPProtocolImpl _replayed;
+    long _next;
+    long _base;
+    int _j;
+
+    @Setup
+    public void setup() throws Exception {
+        Properties p = BenchSupport.cryptoProps("AES_CM_128_HMAC_SHA1_80");
+        _ds = BenchSupport.nullSocket();
+        _inOrder = new SRTPProtocolImpl(1, _ds, null, BenchSupport.PTYPE, p, p);
+        _reordered = new SRTPProtocolImpl(2, _ds, null, BenchSupport.PTYPE, p, p);
+        _replayed = new SRTPProtocolImpl(3, _ds, null, BenchSupport.PTYPE, p, p);
+        _inOrder.setReplayWindowSize(window);
+        _reordered.setReplayWindowSize(window);
+        _replayed.setReplayWindowSize(window);
+        for (long i = 0; i < 100; i++) {
+            accept(_replayed, i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        _ds.close();
+    }
+
+    static void accept(SRTPProtocolImpl s, long idx) throws RTPPacketException {
+        s.checkForReplay(idx);
+        s._index = idx;
+        s.updateCounters((char) idx);
+    }
+
+    @Benchmark
+    public long inOrder() throws RTPPacketException {
+        accept(_inOrder, _next);
+        return _next++;
+    }
+
+    @Benchmark
+    public long reordered() throws RTPPacketException {
+        long idx = _base + JITTER[_j];
+        if (++_j == JITTER.length) {
+            _j = 0;
+            _base += JITTER.length;
+        }
+        accept(_reordered, idx);
+        return idx;
+    }
+
+    @Benchmark
+    public boolean replayRejected() {
+        try {
+            _replayed.checkForReplay(90);
+            return false;
+        } catch (RTPPacketException x) {
+            return true;
+        }
+    }
+}
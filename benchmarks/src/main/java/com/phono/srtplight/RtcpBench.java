@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Clear RTCP - mkRTCP over a compound SR+RR+PSFB packet, and building an SR.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RtcpBench {
+
+    // the test packets from RTCP.main()
+    final static int[] SR = {0x80, 0xc8, 0x00, 0x06, 0x50, 0xf6, 0xb8, 0xbf, 0xdd, 0x62, 0x47, 0xcd, 0x4b, 0x43,
+        0x95, 0x81, 0x27, 0x9b, 0xca, 0xef, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
+    final static int[] RR = {0x81, 0xc9, 0x00, 0x07, 0xab, 0x36, 0xcd, 0x19, 0x2e, 0x0f, 0x36, 0x14, 0xa0, 0xfb,
+        0xf0, 0xe5, 0x5a, 0x50, 0x0b, 0xc0, 0x1a, 0xc9, 0x52, 0xbc, 0x61, 0x36, 0x57, 0xd5, 0x5f, 0x19, 0x00, 0xa4};
+    final static int[] FB = {0x8f, 0xcd, 0x00, 0x06, 0x75, 0xe8, 0x1d, 0x8f, 0x04, 0xad, 0xa0, 0xf2, 0xda, 0x59,
+        0x26, 0x25, 0x30, 0xee, 0x6e, 0x9f, 0x71, 0x36, 0x82, 0x61, 0xfb, 0xe4, 0x12, 0x80};
+
+    ByteBuffer _compound;
+    RTCP.SenderReport _sr;
+    ByteBuffer _out;
+    long _stamp;
+
+    @Setup
+    public void setup() {
+        _compound = ByteBuffer.allocate(SR.length + RR.length + FB.length);
+        for (int[] p : new int[][]{SR, RR, FB}) {
+            for (int b : p) {
+                _compound.put((byte) b);
+            }
+        }
+        _sr = RTCP.mkSenderReport();
+        _sr.setSSRC(BenchSupport.SSRC);
+        _out = ByteBuffer.allocate(4 * (_sr.estimateBodyLength() + 1));
+    }
+
+    @Benchmark
+    public void parseCompound(Blackhole bh) throws InvalidRTCPPacketException {
+        ((Buffer) _compound).position(0);
+        while (_compound.hasRemaining()) {
+            bh.consume(RTCP.mkRTCP(_compound));
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer buildSR() {
+        _stamp += 160;
+        _sr.setRTPStamp(_stamp);
+        ((Buffer) _out).clear();
+        _sr.addBody(_out);
+        return _out;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * RTP header parse and build - plain and with RFC 8285 extensions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RtpHeaderBench {
+
+    final static int PAYLOAD = 160;
+
+    byte[] _plain = new byte[1500];
+    byte[] _ext = new byte[1500];
+    ByteBuffer _plainBuf;
+    ByteBuffer _extBuf;
+    int _plainLen;
+    int _extLen;
+    final RtpHeader _hdr = new RtpHeader();
+    final RtpExtensions _exts = new RtpExtensions();
+    final ExtensionMap _map = new ExtensionMap();
+    RtpExtensionWriter _writer;
+    byte[] _out = new byte[1500];
+    char _seqno;
+
+    @Setup
+    public void setup() {
+        _map.register(1, ExtensionMap.AUDIO_LEVEL_URI);
+        _map.register(3, ExtensionMap.ABS_SEND_TIME_URI);
+        _map.register(5, ExtensionMap.TRANSPORT_CC_URI);
+        _writer = new RtpExtensionWriter(_map);
+        _plainLen = BenchSupport.writePacket(_plain, (char) 1234, 160000L, PAYLOAD);
+        _writer.reset().putAudioLevel(true, 42).putAbsSendTime(0x123456).putTransportSeq(77);
+        int o = RtpHeader.write(_ext, 0, true, BenchSupport.PTYPE, (char) 1234, 160000L, BenchSupport.SSRC,
+                null, _writer.getProfile(), _writer.getData(), _writer.getLength());
+        _extLen = o + PAYLOAD;
+        _plainBuf = ByteBuffer.wrap(_plain);
+        _extBuf = ByteBuffer.wrap(_ext);
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) throws RTPPacketException {
+        RtpHeader h = _hdr.wrap(_plainBuf, 0, _plainLen);
+        bh.consume(h.getSeqno());
+        bh.consume(h.getTimestamp());
+        bh.consume(h.getSSRC());
+        bh.consume(h.getPayloadType());
+        bh.consume(h.getHeaderLength());
+    }
+
+    @Benchmark
+    public void parseExtensions(Blackhole bh) throws RTPPacketException {
+        RtpHeader h = _hdr.wrap(_extBuf, 0, _extLen);
+        RtpExtensions x = _exts.wrap(h, _map);
+        bh.consume(h.getSeqno());
+        bh.consume(x.getAudioLevel());
+        bh.consume(x.getAbsSendTime());
+        bh.consume(x.getTransportSeq());
+    }
+
+    @Benchmark
+    public int build() {
+        return RtpHeader.write(_out, 0, false, BenchSupport.PTYPE, _seqno++, 160L * _seqno, BenchSupport.SSRC,
+                null, -1, null, 0);
+    }
+
+    @Benchmark
+    public int buildExtensions() {
+        _writer.reset().putAudioLevel(true, 42).putTransportSeq(_seqno);
+        return RtpHeader.write(_out, 0, false, BenchSupport.PTYPE, _seqno++, 160L * _seqno, BenchSupport.SSRC,
+                null, _writer.getProfile(), _writer.getData(), _writer.getLength());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.net.DatagramPacket;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SRTCP - build, encrypt and auth a sender report, and the reverse.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SrtcpBench {
+
+    @Param({"AES_CM_128_HMAC_SHA1_80", "AEAD_AES_128_GCM"})
+    public String suite;
+
+    /*
+     keeps the last packet instead of sending it.
+     */
+    static class Captured extends SRTCPProtocolImpl {
+
+        byte[] _last;
+
+        Captured(Properties l, Properties r) {
+            super(l, r);
+        }
+
+        @Override
+        protected void sendToNetwork(byte[] pay) {
+            _last = pay;
+        }
+    }
+
+    Captured _srtcp;
+    DatagramPacket _in;
+    long _pkts;
+
+    @Setup
+    public void setup() throws Exception {
+        Properties p = BenchSupport.cryptoProps(suite);
+        _srtcp = new Captured(p, p);
+        _srtcp.sendSR(BenchSupport.SSRC, 0x0123456789abcdefL, 160000L, 1000, 160000);
+        byte[] sr = _srtcp._last;
+        _in = new DatagramPacket(sr, sr.length);
+        if (_srtcp.inbound(_in).length != 1) {
+            throw new IllegalStateException("SRTCP round trip failed for " + suite);
+        }
+    }
+
+    @Benchmark
+    public byte[] outboundSR() throws Exception {
+        _pkts++;
+        _srtcp.sendSR(BenchSupport.SSRC, 0x0123456789abcdefL + _pkts, 160L * _pkts, _pkts, 160 * _pkts);
+        return _srtcp._last;
+    }
+
+    @Benchmark
+    public RTCP[] inboundSR() throws Exception {
+        // SRTCP has no replay list here, so the one packet will do
+        return _srtcp.inbound(_in);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.net.DatagramSocket;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SRTP protect and unprotect in place, per suite, for a voice sized and a
+ * video sized payload.
+ *
+ * unprotect can't be handed the same packet twice (the replay check would
+ * throw) so each invocation works through a batch that setup has just
+ * protected with the next seqnos - the receiver sees one ever increasing
+ * stream, rollover included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SrtpBench {
+
+    final static int BATCH = 1024;
+
+    @Param({"AES_CM_128_HMAC_SHA1_80", "AES_CM_128_HMAC_SHA1_32", "AES_256_CM_HMAC_SHA1_80", "AES_256_CM_HMAC_SHA1_32",
+        "AEAD_AES_128_GCM", "AEAD_AES_256_GCM"})
+    public String suite;
+
+    @Param({"160", "1200"})
+    public int payload;
+
+    DatagramSocket _ds;
+    SRTPProtocolImpl _tx;
+    byte[] _out = new byte[1500];
+    ByteBuffer _outBuf = ByteBuffer.wrap(_out);
+    char _seqno;
+
+    /*
+     the unprotect side, a state of its own so the per invocation
+     setup doesn't land on protect().
+     */
+    @State(Scope.Thread)
+    public static class Inbound {
+
+        SRTPProtocolImpl _tx; // feeds _rx
+        SRTPProtocolImpl _rx;
+        char _seqno;
+        int _payload;
+        final ByteBuffer[] _batch = new ByteBuffer[BATCH];
+        final int[] _len = new int[BATCH];
+
+        @Setup
+        public void setup(SrtpBench b) {
+            Properties p = BenchSupport.cryptoProps(b.suite);
+            _tx = new SRTPProtocolImpl(2, b._ds, null, BenchSupport.PTYPE, p, p);
+            _rx = new SRTPProtocolImpl(3, b._ds, null, BenchSupport.PTYPE, p, p);
+            _payload = b.payload;
+            for (int i = 0; i < BATCH; i++) {
+                _batch[i] = ByteBuffer.allocate(1500);
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void nextBatch() throws RTPPacketException {
+            for (int i = 0; i < BATCH; i++) {
+                ByteBuffer bb = _batch[i];
+                int len = BenchSupport.writePacket(bb.array(), _seqno, 160L * _seqno, _payload);
+                _seqno++;
+                ((Buffer) bb).clear();
+                ((Buffer) bb).limit(len);
+                _tx.protect(bb);
+                _len[i] = ((Buffer) bb).limit();
+            }
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        Properties p = BenchSupport.cryptoProps(suite);
+        _ds = BenchSupport.nullSocket();
+        _tx = new SRTPProtocolImpl(1, _ds, null, BenchSupport.PTYPE, p, p);
+        BenchSupport.writePacket(_out, (char) 0, 0L, payload);
+    }
+
+    @TearDown
+    public void tearDown() {
+        _ds.close();
+    }
+
+    @Benchmark
+    public ByteBuffer protect() throws RTPPacketException {
+        // new seqno each time, the payload is whatever the last call left
+        RtpHeader.write(_out, 0, false, BenchSupport.PTYPE, _seqno, 160L * _seqno, BenchSupport.SSRC, null, -1, null, 0);
+        _seqno++;
+        ((Buffer) _outBuf).clear();
+        ((Buffer) _outBuf).limit(RTPProtocolImpl.RTPHEAD + payload);
+        _tx.protect(_outBuf);
+        return _outBuf;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long unprotect(Inbound in) throws RTPPacketException {
+        long ret = 0;
+        for (int i = 0; i < BATCH; i++) {
+            ByteBuffer bb = in._batch[i];
+            ((Buffer) bb).position(0);
+            ((Buffer) bb).limit(in._len[i]);
+            ret += in._rx.unprotect(bb);
+        }
+        return ret;
+    }
+}
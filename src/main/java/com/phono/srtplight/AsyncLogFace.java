@@ -0,0 +1,286 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LogFace that hands messages to another LogFace on a background thread, so
+ * a slow log backend can't stall the RTP threads.
+ * <pre>
+ * Log.setLogger(new AsyncLogFace(myLogFace));
+ * </pre>
+ * Messages go through a fixed size lock free ring. When it is full the
+ * message is dropped rather than waiting, and counted against its level -
+ * see getDropped().
+ */
+public class AsyncLogFace implements LogFace {
+
+    final static int DEFAULT_CAPACITY = 4096;
+    final static long IDLE_NANOS = 10000000L; // drainer nap when there is nothing to do
+
+    private final LogFace _sink;
+    private final int _mask;
+    private final String[] _messages;
+    private final int[] _levels;
+    // per slot sequence - slot i is free for the producer at position p when seq == p,
+    // and full for the consumer at p when seq == p + 1 (Vyukov's bounded queue)
+    private final AtomicLongArray _seq;
+    private final AtomicLong _tail = new AtomicLong(); // next to fill, shared by producers
+    private volatile long _head; // next to drain, only the drainer moves it
+    private final LongAdder[] _dropped = new LongAdder[Log.VERB + 1];
+    private final Thread _drainer;
+    private volatile boolean _running = true;
+    private volatile boolean _idle;
+
+    public AsyncLogFace(LogFace sink) {
+        this(sink, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param sink where the messages end up - only ever called from the drain thread
+     * @param capacity messages buffered before we start dropping, rounded up to a power of two
+     */
+    public AsyncLogFace(LogFace sink, int capacity) {
+        int c = 2;
+        while (c < capacity) {
+            c <<= 1;
+        }
+        _sink = sink;
+        _mask = c - 1;
+        _messages = new String[c];
+        _levels = new int[c];
+        _seq = new AtomicLongArray(c);
+        for (int i = 0; i < c; i++) {
+            _seq.set(i, i);
+        }
+        for (int i = 0; i < _dropped.length; i++) {
+            _dropped[i] = new LongAdder();
+        }
+        _drainer = new Thread(this::drainLoop);
+        _drainer.setName("AsyncLogFace");
+        _drainer.setDaemon(true);
+        _drainer.start();
+    }
+
+    @Override
+    public void e(String message) {
+        offer(Log.ERROR, message);
+    }
+
+    @Override
+    public void d(String message) {
+        offer(Log.DEBUG, message);
+    }
+
+    @Override
+    public void w(String message) {
+        offer(Log.WARN, message);
+    }
+
+    @Override
+    public void v(String message) {
+        offer(Log.VERB, message);
+    }
+
+    @Override
+    public void i(String message) {
+        offer(Log.INFO, message);
+    }
+
+    /**
+     * messages at this level (Log.ERROR .. Log.VERB) thrown away because the ring was full.
+     */
+    public long getDropped(int level) {
+        return ((level > 0) && (level < _dropped.length)) ? _dropped[level].sum() : 0;
+    }
+
+    public long getDropped() {
+        long ret = 0;
+        for (LongAdder d : _dropped) {
+            ret += d.sum();
+        }
+        return ret;
+    }
+
+    /**
+     * messages waiting to be written.
+     */
+    public int getPending() {
+        return (int) Math.max(0, _tail.get() - _head);
+    }
+
+    /**
+     * stop the drain thread once it has written what is already queued.
+     */
+    public void shutdown() {
+        _running = false;
+        LockSupport.unpark(_drainer);
+        try {
+            _drainer.join(1000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     never blocks - claim a slot with a CAS or give up if the ring is full.
+     */
+    boolean offer(int level, String message) {
+        long pos = _tail.get();
+        int idx;
+        while (true) {
+            idx = (int) pos & _mask;
+            long dif = _seq.get(idx) - pos;
+            if (dif == 0) {
+                if (_tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = _tail.get();
+            } else if (dif < 0) {
+                // the drainer hasn't got to this slot from last time round
+                _dropped[((level > 0) && (level < _dropped.length)) ? level : 0].increment();
+                return false;
+            } else {
+                pos = _tail.get(); // another producer beat us to it
+            }
+        }
+        _messages[idx] = message;
+        _levels[idx] = level;
+        _seq.lazySet(idx, pos + 1); // publishes the slot
+        if (_idle) {
+            LockSupport.unpark(_drainer);
+        }
+        return true;
+    }
+
+    /*
+     drainer thread only - write everything that is ready, return how many.
+     */
+    private int drain() {
+        int n = 0;
+        while (true) {
+            int idx = (int) _head & _mask;
+            if (_seq.get(idx) != _head + 1) {
+                return n;
+            }
+            String m = _messages[idx];
+            int level = _levels[idx];
+            _messages[idx] = null;
+            _seq.lazySet(idx, _head + _mask + 1); // free for the next lap
+            _head++;
+            n++;
+            try {
+                switch (level) {
+                    case Log.ERROR:
+                        _sink.e(m);
+                        break;
+                    case Log.WARN:
+                        _sink.w(m);
+                        break;
+                    case Log.INFO:
+                        _sink.i(m);
+                        break;
+                    case Log.DEBUG:
+                        _sink.d(m);
+                        break;
+                    default:
+                        _sink.v(m);
+                        break;
+                }
+            } catch (RuntimeException x) {
+                // a broken backend mustn't kill the thread - nowhere to report it though
+            }
+        }
+    }
+
+    private void drainLoop() {
+        while (_running) {
+            if (drain() == 0) {
+                _idle = true;
+                if (drain() == 0) { // in case something arrived before _idle was seen
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                }
+                _idle = false;
+            }
+        }
+        drain();
+    }
+
+    /*
+     four threads shouting at a slow backend - everything is either written or counted.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final LongAdder written = new LongAdder();
+        LogFace slow = new LogFace() {
+            void slowly() {
+                written.increment();
+                LockSupport.parkNanos(20000);
+            }
+
+            public void e(String message) {
+                slowly();
+            }
+
+            public void d(String message) {
+                slowly();
+            }
+
+            public void w(String message) {
+                slowly();
+            }
+
+            public void v(String message) {
+                slowly();
+            }
+
+            public void i(String message) {
+                slowly();
+            }
+        };
+        AsyncLogFace a = new AsyncLogFace(slow, 1024);
+        final int each = 200000;
+        Thread[] t = new Thread[4];
+        long t0 = System.nanoTime();
+        for (int i = 0; i < t.length; i++) {
+            t[i] = new Thread(() -> {
+                for (int j = 0; j < each; j++) {
+                    if ((j & 1) == 0) {
+                        a.d("message " + j);
+                    } else {
+                        a.v("message " + j);
+                    }
+                }
+            });
+            t[i].start();
+        }
+        for (Thread th : t) {
+            th.join();
+        }
+        long t1 = System.nanoTime();
+        a.shutdown();
+        long sent = (long) each * t.length;
+        System.out.println("sent " + sent + " in " + (t1 - t0) / 1000000 + "ms, written " + written.sum()
+                + " dropped debug " + a.getDropped(Log.DEBUG) + " verb " + a.getDropped(Log.VERB));
+        if (written.sum() + a.getDropped() != sent) {
+            throw new IllegalStateException("lost messages");
+        }
+    }
+}
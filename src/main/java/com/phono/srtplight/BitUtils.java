@@ -57,29 +57,78 @@ public class BitUtils  {
      */
     public static int copyBits(int input, int in_noLSB, byte output[],
             int out_pos) {
-        int res;
-        int value = input;
-        
-        // start with the left most bit I've got to copy over:
-        int mask = 0x1 << (in_noLSB -1);
-        
-        for (int i=0; i<in_noLSB; i++) {
-            // see if the that bit is one or zero
-            res = (value & mask);
-            if (res > 0) {
-                setBit(output, out_pos);
-            }
-            
-            // shift the mask to the next position
-            // shift with zero extension
-            mask = mask >>> 1;
-            out_pos++;
+        return putBits(input, in_noLSB, output, out_pos);
+    }
+
+    /**
+     * Writes the width (0-64) LSBs of value into output starting at bit
+     * out_pos, MSB first, overwriting what was there. Works a byte at a time
+     * with shifts and masks rather than bit by bit.
+     *
+     * @param value The value to write
+     * @param width The number of LSB in value to write
+     * @param output The output array
+     * @param out_pos The start bit position in output
+     * @return the bit position after the field
+     */
+    public static int putBits(long value, int width, byte output[], int out_pos) {
+        int remaining = width;
+        while (remaining > 0) {
+            int index = out_pos >>> 3;
+            int off = out_pos & 7;
+            int n = Math.min(8 - off, remaining); // bits that land in this byte
+            int shift = 8 - off - n;
+            int mask = ((1 << n) - 1) << shift;
+            int bits = ((int) (value >>> (remaining - n)) << shift) & mask;
+            output[index] = (byte) ((output[index] & ~mask) | bits);
+            out_pos += n;
+            remaining -= n;
         }
         return out_pos;
     }
-    
-    
-    
+
+    /**
+     * Reads width (0-64) bits starting at bit in_pos, MSB first.
+     * The bytes covering the field are gathered into one long and the
+     * field shifted and masked out of it.
+     *
+     * @param input The input array to read from
+     * @param in_pos The start bit position in input
+     * @param width The number of bits to read
+     * @return the field, right aligned
+     */
+    public static long getBits(byte input[], int in_pos, int width) {
+        if (width == 0) {
+            return 0;
+        }
+        int first = in_pos >>> 3;
+        int end = in_pos + width; // bit after the field
+        int last = (end - 1) >>> 3;
+        long acc = 0;
+        if (last - first < 8) {
+            for (int i = first; i <= last; i++) {
+                acc = (acc << 8) | (input[i] & 0xff);
+            }
+            acc >>>= ((last + 1) << 3) - end;
+        } else {
+            // unaligned field wider than 56 bits spans 9 bytes, the 'lost'
+            // top bits are ones before in_pos so we don't care.
+            for (int i = first; i < last; i++) {
+                acc = (acc << 8) | (input[i] & 0xff);
+            }
+            int tail = end - (last << 3);
+            acc = (acc << tail) | ((input[last] & 0xff) >>> (8 - tail));
+        }
+        return (width == 64) ? acc : (acc & ((1L << width) - 1));
+    }
+
+    /**
+     * getBits() for fields of up to 32 bits.
+     */
+    public static int getIntBits(byte input[], int in_pos, int width) {
+        return (int) getBits(input, in_pos, width);
+    }
+
     /**
      * Returns zero or one.
      *
@@ -124,30 +173,67 @@ public class BitUtils  {
      */
     public static short copyBits(byte input[], int in_pos,
             int no_bits) {
-        // LSB is on the right hand side
-        short out_value = 0;
-        
-        // start with the left most bit I've got to copy into:
-        int out_value_mask = 0x1 << (no_bits -1);
-        
-        int myBit;
-        for (int b=0; b<no_bits; b++) {
-            myBit = getBit(input, in_pos);
-            if (myBit > 0) {
-                // OR the bit into place, so the other bits remain
-                // undisturbed.
-                out_value |= out_value_mask;
+        return (short) getBits(input, in_pos, no_bits);
+    }
+
+    /*
+     the original bit at a time versions - kept to check the word ones against.
+     */
+    static int refCopyBits(int input, int in_noLSB, byte output[], int out_pos) {
+        long mask = 0x1L << (in_noLSB - 1);
+        for (int i = 0; i < in_noLSB; i++) {
+            if ((input & mask) != 0) {
+                setBit(output, out_pos);
             }
-            
-            // move to the next bit of input
-            in_pos++;
-            
-            // get ready for the next bit of output
-            // shift with zero extension
-            out_value_mask = (short) (out_value_mask >>> 1);
+            mask = mask >>> 1;
+            out_pos++;
+        }
+        return out_pos;
+    }
+
+    static long refGetBits(byte input[], int in_pos, int no_bits) {
+        long out_value = 0;
+        for (int b = 0; b < no_bits; b++) {
+            out_value = (out_value << 1) | ((getBit(input, in_pos++) != 0) ? 1 : 0);
         }
         return out_value;
     }
 
-    
+    public static void main(String[] args) {
+        java.util.Random r = new java.util.Random(1);
+        byte[] buf = new byte[32];
+        int n = 1000000;
+        for (int t = 0; t < n; t++) {
+            r.nextBytes(buf);
+            int width = r.nextInt(65);
+            int pos = r.nextInt(32 * 8 - 64);
+            if (getBits(buf, pos, width) != refGetBits(buf, pos, width)) {
+                throw new java.lang.ArithmeticException("getBits wrong pos=" + pos + " width=" + width);
+            }
+            int iw = r.nextInt(33);
+            int v = r.nextInt();
+            byte[] a = new byte[32];
+            byte[] b = new byte[32];
+            if ((putBits(v, iw, a, pos) != refCopyBits(v, iw, b, pos)) || !java.util.Arrays.equals(a, b)) {
+                throw new java.lang.ArithmeticException("putBits wrong pos=" + pos + " width=" + iw);
+            }
+        }
+        System.out.println("checked " + n + " random fields");
+        // rough timing - the benchmark module has the proper JMH version
+        long sink = 0;
+        for (int rep = 0; rep < 3; rep++) {
+            long t0 = System.nanoTime();
+            for (int t = 0; t < n; t++) {
+                sink += refGetBits(buf, t & 127, 32);
+                refCopyBits(t, 16, buf, t & 127);
+            }
+            long t1 = System.nanoTime();
+            for (int t = 0; t < n; t++) {
+                sink += getBits(buf, t & 127, 32);
+                putBits(t, 16, buf, t & 127);
+            }
+            long t2 = System.nanoTime();
+            System.out.println("bit at a time " + (t1 - t0) / n + "ns word " + (t2 - t1) / n + "ns (" + (sink & 1) + ")");
+        }
+    }
 }
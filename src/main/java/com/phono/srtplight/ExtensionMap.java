@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+/**
+ * Which RFC 8285 header extension ids this session negotiated for which
+ * extension (from the SDP a=extmap lines).
+ * <pre>
+ * ExtensionMap m = new ExtensionMap();
+ * m.register(3, ExtensionMap.ABS_SEND_TIME_URI);
+ * m.register(5, ExtensionMap.TRANSPORT_CC_URI);
+ * </pre>
+ * Ids are 1-14 unless the two byte form was negotiated (a=extmap-allow-mixed),
+ * which allows 1-255.
+ */
+public class ExtensionMap {
+
+    public final static int ABS_SEND_TIME = 1;
+    public final static int TRANSPORT_CC = 2;
+    public final static int AUDIO_LEVEL = 3;
+    public final static int MID = 4;
+    public final static int RID = 5;
+    final static int NTYPES = 6;
+
+    public final static String ABS_SEND_TIME_URI = "http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time";
+    public final static String TRANSPORT_CC_URI = "http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01";
+    public final static String AUDIO_LEVEL_URI = "urn:ietf:params:rtp-hdrext:ssrc-audio-level";
+    public final static String MID_URI = "urn:ietf:params:rtp-hdrext:sdes:mid";
+    public final static String RID_URI = "urn:ietf:params:rtp-hdrext:sdes:rtp-stream-id";
+
+    private final byte[] _typeById = new byte[256]; // 0 == not registered
+    private final int[] _idByType = new int[NTYPES];
+    private final boolean _twoByte;
+
+    public ExtensionMap() {
+        this(false);
+    }
+
+    /**
+     * @param twoByte the two byte form was negotiated, so ids up to 255 are allowed
+     */
+    public ExtensionMap(boolean twoByte) {
+        _twoByte = twoByte;
+        java.util.Arrays.fill(_idByType, -1);
+    }
+
+    public boolean isTwoByte() {
+        return _twoByte;
+    }
+
+    /**
+     * @return false if we don't know this uri - it is ignored.
+     */
+    public boolean register(int id, String uri) {
+        int type;
+        switch (uri) {
+            case ABS_SEND_TIME_URI:
+                type = ABS_SEND_TIME;
+                break;
+            case TRANSPORT_CC_URI:
+                type = TRANSPORT_CC;
+                break;
+            case AUDIO_LEVEL_URI:
+                type = AUDIO_LEVEL;
+                break;
+            case MID_URI:
+                type = MID;
+                break;
+            case RID_URI:
+                type = RID;
+                break;
+            default:
+                Log.debug("Ignoring unknown header extension " + id + " " + uri);
+                return false;
+        }
+        register(id, type);
+        return true;
+    }
+
+    /**
+     * map id to type, replacing whatever either was mapped to before.
+     */
+    public void register(int id, int type) {
+        if ((id < 1) || (id > (_twoByte ? 255 : 14))) {
+            throw new IllegalArgumentException("Bad header extension id " + id + (_twoByte ? "" : " for the one byte form"));
+        }
+        if ((type < 1) || (type >= NTYPES)) {
+            throw new IllegalArgumentException("Unknown header extension type " + type);
+        }
+        int oldType = _typeById[id];
+        if (oldType != 0) {
+            _idByType[oldType] = -1;
+        }
+        int oldId = _idByType[type];
+        if (oldId > 0) {
+            _typeById[oldId] = 0;
+        }
+        _typeById[id] = (byte) type;
+        _idByType[type] = id;
+    }
+
+    /**
+     * @return the type registered for this id, 0 if none.
+     */
+    public int typeOf(int id) {
+        return _typeById[id & 0xff];
+    }
+
+    /**
+     * @return the id for this type, -1 if it wasn't negotiated.
+     */
+    public int idOf(int type) {
+        return _idByType[type];
+    }
+}
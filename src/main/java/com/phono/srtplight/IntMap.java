@@ -0,0 +1,143 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+/**
+ * Minimal open addressing (linear probe) map from an int key - typically an
+ * SSRC - to an object. No boxing on lookup. Not thread safe.
+ */
+class IntMap<V> {
+
+    private int[] _keys;
+    private Object[] _vals; // null slot == empty, so null values are not allowed
+    private int _size;
+    private int _mask;
+
+    IntMap() {
+        this(16);
+    }
+
+    IntMap(int capacity) {
+        int c = 8;
+        while (c < capacity * 2) {
+            c <<= 1;
+        }
+        _keys = new int[c];
+        _vals = new Object[c];
+        _mask = c - 1;
+    }
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9; // SSRCs are random but test ones often aren't
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        for (int i = slot(key, _mask);; i = (i + 1) & _mask) {
+            Object v = _vals[i];
+            if (v == null) {
+                return null;
+            }
+            if (_keys[i] == key) {
+                return (V) v;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(int key, V val) {
+        if (val == null) {
+            throw new NullPointerException("IntMap can't hold null");
+        }
+        if ((_size + 1) * 2 > _keys.length) {
+            grow();
+        }
+        for (int i = slot(key, _mask);; i = (i + 1) & _mask) {
+            Object v = _vals[i];
+            if (v == null) {
+                _keys[i] = key;
+                _vals[i] = val;
+                _size++;
+                return null;
+            }
+            if (_keys[i] == key) {
+                _vals[i] = val;
+                return (V) v;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int i = slot(key, _mask);
+        while (true) {
+            if (_vals[i] == null) {
+                return null;
+            }
+            if (_keys[i] == key) {
+                break;
+            }
+            i = (i + 1) & _mask;
+        }
+        V ret = (V) _vals[i];
+        // backward shift the rest of the cluster so probes don't stop early
+        int gap = i;
+        for (int j = (i + 1) & _mask; _vals[j] != null; j = (j + 1) & _mask) {
+            int home = slot(_keys[j], _mask);
+            if (((j - home) & _mask) >= ((j - gap) & _mask)) {
+                _keys[gap] = _keys[j];
+                _vals[gap] = _vals[j];
+                gap = j;
+            }
+        }
+        _vals[gap] = null;
+        _size--;
+        return ret;
+    }
+
+    int size() {
+        return _size;
+    }
+
+    /**
+     * call f on every entry - f must not modify the map.
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(java.util.function.BiConsumer<Integer, V> f) {
+        for (int i = 0; i < _vals.length; i++) {
+            if (_vals[i] != null) {
+                f.accept(_keys[i], (V) _vals[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void grow() {
+        int[] ok = _keys;
+        Object[] ov = _vals;
+        _keys = new int[ok.length * 2];
+        _vals = new Object[ov.length * 2];
+        _mask = _keys.length - 1;
+        _size = 0;
+        for (int i = 0; i < ok.length; i++) {
+            if (ov[i] != null) {
+                put(ok[i], (V) ov[i]);
+            }
+        }
+    }
+}
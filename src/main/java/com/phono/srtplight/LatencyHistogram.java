@@ -0,0 +1,203 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.util.Arrays;
+
+/**
+ * Fixed bucket histogram of nanosecond timings.
+ *
+ * Each power of two is split into 8 linear buckets, so a percentile is
+ * within 12.5% of the true value, from 1ns up to about a minute (anything
+ * longer lands in the top bucket). record() is a few shifts and an
+ * increment into a long[] allocated up front - one writer thread, no locks.
+ * Copies taken from another thread are not locked against the writer - they
+ * may be a sample or two behind, and the mean and max may include a sample
+ * the percentiles don't.
+ */
+public class LatencyHistogram {
+
+    final static int SUBBITS = 3;
+    final static int SUB = 1 << SUBBITS;
+    final static int MAXBITS = 36; // 2^36ns ~ 69s
+    final static int BUCKETS = (MAXBITS - SUBBITS + 1) * SUB;
+
+    private final long[] _counts = new long[BUCKETS];
+    private long _count;
+    private long _total;
+    private long _max;
+
+    /**
+     * an empty histogram.
+     */
+    public LatencyHistogram() {
+    }
+
+    /**
+     * add one timing.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        _counts[bucket(nanos)]++;
+        _count++;
+        _total += nanos;
+        if (nanos > _max) {
+            _max = nanos;
+        }
+    }
+
+    static int bucket(long v) {
+        if (v < SUB) {
+            return (int) v;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        if (msb >= MAXBITS) {
+            return BUCKETS - 1;
+        }
+        int shift = msb - SUBBITS;
+        return ((shift + 1) << SUBBITS) + (int) ((v >>> shift) & (SUB - 1));
+    }
+
+    /*
+     largest value that lands in bucket b.
+     */
+    static long upper(int b) {
+        if (b < SUB) {
+            return b;
+        }
+        int shift = (b >>> SUBBITS) - 1;
+        long lower = ((long) (SUB + (b & (SUB - 1)))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    public long getCount() {
+        return _count;
+    }
+
+    public long getMax() {
+        return _max;
+    }
+
+    public double getMean() {
+        return (_count == 0) ? 0.0 : ((double) _total) / _count;
+    }
+
+    /**
+     * the value (in ns) that p percent of the samples are at or below -
+     * rounded up to the top of its bucket, never more than the max.
+     *
+     * @param p 0 to 100
+     */
+    public long getPercentile(double p) {
+        if (_count == 0) {
+            return 0;
+        }
+        long want = (long) Math.ceil((p / 100.0) * _count);
+        if (want < 1) {
+            want = 1;
+        }
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += _counts[b];
+            if (seen >= want) {
+                return Math.min(upper(b), _max);
+            }
+        }
+        return _max;
+    }
+
+    /**
+     * a copy to read percentiles from while this carries on recording.
+     */
+    public LatencyHistogram snapshot() {
+        LatencyHistogram r = new LatencyHistogram();
+        r.merge(this);
+        return r;
+    }
+
+    /**
+     * a new histogram holding these samples and o's.
+     */
+    public LatencyHistogram add(LatencyHistogram o) {
+        LatencyHistogram r = snapshot();
+        r.merge(o);
+        return r;
+    }
+
+    /*
+     o may be recording on another thread while we read it - take the count
+     from the buckets we actually copied so percentiles agree with it. The
+     total and max can still be a sample either side of that.
+     */
+    void merge(LatencyHistogram o) {
+        long n = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            long c = o._counts[b];
+            _counts[b] += c;
+            n += c;
+        }
+        _count += n;
+        _total += o._total;
+        _max = Math.max(_max, o._max);
+    }
+
+    void reset() {
+        Arrays.fill(_counts, 0L);
+        _count = 0;
+        _total = 0;
+        _max = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "n=" + _count + " p50=" + getPercentile(50) + " p90=" + getPercentile(90)
+                + " p99=" + getPercentile(99) + " p99.9=" + getPercentile(99.9) + " max=" + _max + "ns";
+    }
+
+    /*
+     bucket edges and percentiles against a sorted array.
+     */
+    public static void main(String[] args) {
+        for (long v = 0; v < 1000000; v++) {
+            int b = bucket(v);
+            if ((v > upper(b)) || ((b > 0) && (v <= upper(b - 1)))) {
+                throw new IllegalStateException("value " + v + " bucket " + b);
+            }
+        }
+        if (bucket(Long.MAX_VALUE) != BUCKETS - 1) {
+            throw new IllegalStateException("top bucket");
+        }
+        java.util.Random r = new java.util.Random(7);
+        LatencyHistogram h = new LatencyHistogram();
+        long[] all = new long[200000];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (long) Math.exp(r.nextGaussian() * 1.5 + 9);
+            h.record(all[i]);
+        }
+        Arrays.sort(all);
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            long exact = all[(int) Math.ceil(p / 100 * all.length) - 1];
+            long got = h.getPercentile(p);
+            if ((got < exact) || (got > exact + exact / SUB)) {
+                throw new IllegalStateException("p" + p + " exact " + exact + " got " + got);
+            }
+        }
+        System.out.println("histogram ok " + h);
+    }
+}
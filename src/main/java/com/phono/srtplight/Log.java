@@ -16,8 +16,21 @@
  */
 package com.phono.srtplight;
 
+import java.util.function.Supplier;
+
 /**
  * A simple logger.
+ *
+ * The String methods build their message before the level is checked. The
+ * Supplier and format versions don't, but a lambda that captures locals is
+ * itself allocated on every call, as are varargs arrays and boxes. So on per
+ * packet paths check the level first:
+ * <pre>
+ * if (Log.getLevel() > Log.DEBUG) {
+ *     Log.verb("got packet " + getHex(data));
+ * }
+ * </pre>
+ * and keep the lazy versions for everywhere else.
  */
 public class Log {
 
@@ -170,6 +183,76 @@ public class Log {
         }
     }
 
+    /**
+     * true if messages at level would be logged
+     */
+    public static boolean isEnabled(int level) {
+        return _level >= level;
+    }
+
+    public static void error(Supplier<String> message) {
+        if (_level >= ERROR) {
+            log(ERROR, message.get());
+        }
+    }
+
+    public static void warn(Supplier<String> message) {
+        if (_level >= WARN) {
+            log(WARN, message.get());
+        }
+    }
+
+    public static void info(Supplier<String> message) {
+        if (_level >= INFO) {
+            log(INFO, message.get());
+        }
+    }
+
+    public static void debug(Supplier<String> message) {
+        if (_level >= DEBUG) {
+            log(DEBUG, message.get());
+        }
+    }
+
+    public static void verb(Supplier<String> message) {
+        if (_level >= VERB) {
+            log(VERB, message.get());
+        }
+    }
+
+    /**
+     * String.format(format, args) - only formatted if the level is on.
+     */
+    public static void error(String format, Object... args) {
+        if (_level >= ERROR) {
+            log(ERROR, String.format(format, args));
+        }
+    }
+
+    public static void warn(String format, Object... args) {
+        if (_level >= WARN) {
+            log(WARN, String.format(format, args));
+        }
+    }
+
+    public static void info(String format, Object... args) {
+        if (_level >= INFO) {
+            log(INFO, String.format(format, args));
+        }
+    }
+
+    public static void debug(String format, Object... args) {
+        if (_level >= DEBUG) {
+            log(DEBUG, String.format(format, args));
+        }
+    }
+
+    public static void verb(String format, Object... args) {
+        if (_level >= VERB) {
+            log(VERB, String.format(format, args));
+        }
+    }
+
     /**
      * where
      */
@@ -5,6 +5,8 @@
 
 package com.phono.srtplight;
 
+import java.util.function.Supplier;
+
 /**
  *
  * @author tim
@@ -21,4 +23,38 @@ public interface LogFace {
 
     void i(String message) ;
 
+    /*
+     lazy versions for code holding a LogFace directly - the message is only
+     built if Log's level lets it through.
+     */
+    default void e(Supplier<String> message) {
+        if (Log.isEnabled(Log.ERROR)) {
+            e(message.get());
+        }
+    }
+
+    default void d(Supplier<String> message) {
+        if (Log.isEnabled(Log.DEBUG)) {
+            d(message.get());
+        }
+    }
+
+    default void w(Supplier<String> message) {
+        if (Log.isEnabled(Log.WARN)) {
+            w(message.get());
+        }
+    }
+
+    default void v(Supplier<String> message) {
+        if (Log.isEnabled(Log.VERB)) {
+            v(message.get());
+        }
+    }
+
+    default void i(Supplier<String> message) {
+        if (Log.isEnabled(Log.INFO)) {
+            i(message.get());
+        }
+    }
+
 }
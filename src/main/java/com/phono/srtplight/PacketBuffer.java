@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference counted packet buffer from a PacketBufferPool.
+ * It starts with one reference (the acquirer's), retain() adds one,
+ * release() drops one and the last release hands it back to the pool.
+ * Don't touch the buffer after your last release().
+ * Buffers with no pool just wrap a receive array and can't be retained.
+ */
+public class PacketBuffer {
+
+    private final ByteBuffer _buf;
+    private final PacketBufferPool _pool;
+    private final AtomicInteger _refs = new AtomicInteger();
+    private ByteBuffer _ro;
+
+    PacketBuffer(PacketBufferPool pool, ByteBuffer buf) {
+        _pool = pool;
+        _buf = buf;
+    }
+
+    public ByteBuffer getBuffer() {
+        return _buf;
+    }
+
+    /**
+     * read only view of the buffer with the same position and limit,
+     * the view object is reused.
+     */
+    public ByteBuffer getReadOnlyView() {
+        if (_ro == null) {
+            _ro = _buf.asReadOnlyBuffer();
+        }
+        ((Buffer) _ro).limit(((Buffer) _buf).limit());
+        ((Buffer) _ro).position(((Buffer) _buf).position());
+        return _ro;
+    }
+
+    public PacketBuffer retain() {
+        if (_pool == null) {
+            throw new IllegalStateException("retain() on an unpooled PacketBuffer - copy the data instead");
+        }
+        if (_refs.getAndIncrement() <= 0) {
+            throw new IllegalStateException("retain() on a released PacketBuffer");
+        }
+        return this;
+    }
+
+    public void release() {
+        int r = _refs.decrementAndGet();
+        if (r == 0) {
+            if (_pool != null) {
+                _pool.recycle(this);
+            }
+        } else if (r < 0) {
+            throw new IllegalStateException("PacketBuffer released too often");
+        }
+    }
+
+    public int refCount() {
+        return _refs.get();
+    }
+
+    void acquired() {
+        _refs.set(1);
+    }
+}
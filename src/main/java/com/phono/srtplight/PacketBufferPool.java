@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of fixed size PacketBuffers, heap or direct. Once warmed up
+ * acquire/release don't allocate. If the pool is empty acquire() makes a
+ * new buffer; buffers released when the pool is full are left to the GC.
+ *
+ * Direct buffers only make sense with channel backed sockets
+ * (RTPSelectorEngine) - a plain DatagramSocket needs a heap array.
+ */
+public class PacketBufferPool {
+
+    private final ArrayBlockingQueue<PacketBuffer> _free; // array backed - no allocation per offer/poll
+    private final int _size;
+    private final boolean _direct;
+    private final AtomicInteger _allocated = new AtomicInteger();
+
+    public PacketBufferPool(int bufferSize, int maxPooled, boolean direct) {
+        _size = bufferSize;
+        _direct = direct;
+        _free = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    public PacketBufferPool(int maxPooled) {
+        this(1500, maxPooled, false);
+    }
+
+    /**
+     * a cleared buffer holding one reference.
+     */
+    public PacketBuffer acquire() {
+        PacketBuffer pb = _free.poll();
+        if (pb == null) {
+            ByteBuffer bb = _direct ? ByteBuffer.allocateDirect(_size) : ByteBuffer.allocate(_size);
+            pb = new PacketBuffer(this, bb);
+            _allocated.incrementAndGet();
+        }
+        ((Buffer) pb.getBuffer()).clear();
+        pb.acquired();
+        return pb;
+    }
+
+    void recycle(PacketBuffer pb) {
+        if (!_free.offer(pb)) {
+            Log.verb("PacketBufferPool full, dropping buffer");
+        }
+    }
+
+    public boolean isDirect() {
+        return _direct;
+    }
+
+    /**
+     * how many buffers this pool has ever made - flat in steady state.
+     */
+    public int getAllocated() {
+        return _allocated.get();
+    }
+
+    public int getFree() {
+        return _free.size();
+    }
+}
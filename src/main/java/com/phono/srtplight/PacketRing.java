@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.net.SocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed ring of preallocated packet slots. A receive thread fills as many
+ * slots as the sockets have ready, then processes them as a batch.
+ * Single threaded - claim/commit and take must be on the same thread.
+ */
+class PacketRing {
+
+    static class Slot {
+
+        final byte[] data;
+        final ByteBuffer buf;
+        int len;
+        SocketAddress from;
+        RTPProtocolImpl session;
+        PacketBuffer pb; // set instead of data when the session has a PacketBufferPool
+        long readAt; // nanoTime the read started, if the session is timing its stages
+
+        final PacketBuffer view; // unpooled, over data
+
+        Slot(int size) {
+            data = new byte[size];
+            buf = ByteBuffer.wrap(data);
+            view = new PacketBuffer(null, buf);
+        }
+
+        PacketBuffer wrapped(int len) {
+            ((Buffer) buf).clear();
+            ((Buffer) buf).limit(len);
+            view.acquired();
+            return view;
+        }
+    }
+
+    private final Slot[] _slots;
+    private final int _mask;
+    private int _head; // next to take
+    private int _tail; // next to fill
+
+    PacketRing(int size, int packetSize) {
+        int c = 1;
+        while (c < size) {
+            c <<= 1;
+        }
+        _slots = new Slot[c];
+        for (int i = 0; i < c; i++) {
+            _slots[i] = new Slot(packetSize);
+        }
+        _mask = c - 1;
+    }
+
+    boolean isFull() {
+        return (_tail - _head) == _slots.length;
+    }
+
+    boolean isEmpty() {
+        return _tail == _head;
+    }
+
+    int size() {
+        return _tail - _head;
+    }
+
+    /**
+     * the next free slot, not counted as filled until commit(). null if full.
+     */
+    Slot claim() {
+        return isFull() ? null : _slots[_tail & _mask];
+    }
+
+    void commit() {
+        _tail++;
+    }
+
+    /**
+     * the oldest filled slot, or null if there are none. It stays valid until
+     * it is claimed again - ie until the ring has gone round once.
+     */
+    Slot take() {
+        if (isEmpty()) {
+            return null;
+        }
+        return _slots[_head++ & _mask];
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Where the time goes for each packet - a LatencyHistogram per stage of the
+ * receive and send pipelines.
+ * <pre>
+ * session.setTimings(true);
+ * ...
+ * PipelineTimings t = session.getTimings();
+ * long p99auth = t.getHistogram(PipelineTimings.RX_AUTH).getPercentile(99);
+ * PipelineTimings all = PipelineTimings.getGlobal();
+ * </pre>
+ * A stage is timed from the end of the one before, so the stages of a
+ * packet add up to its time in the stack. GCM decrypts as it checks the
+ * tag so that shows up under auth, and RX_SOCKET (time from the socket
+ * read to processing) is only seen with an RTPSelectorEngine - the other
+ * receive loops block in the read.
+ * A session's samples move into the global totals when it is terminated or
+ * has setTimings(false). One that is just dropped isn't held on to - its
+ * samples leave the totals once it has been garbage collected.
+ */
+public class PipelineTimings {
+
+    /* receive */
+    public final static int RX_SOCKET = 0;
+    public final static int RX_PARSE = 1;
+    public final static int RX_INDEX = 2; // roc estimate and replay check
+    public final static int RX_AUTH = 3;
+    public final static int RX_DECRYPT = 4; // includes copying the payload out
+    public final static int RX_DELIVER = 5; // the sink callback
+    /* send */
+    public final static int TX_BUILD = 6; // header and payload into the packet
+    public final static int TX_INDEX = 7; // roc guess and key derivation
+    public final static int TX_ENCRYPT = 8;
+    public final static int TX_AUTH = 9;
+    public final static int TX_SOCKET = 10;
+    public final static int STAGES = 11;
+
+    final static String[] NAMES = {"rx socket", "rx parse", "rx index", "rx auth", "rx decrypt", "rx deliver",
+        "tx build", "tx index", "tx encrypt", "tx auth", "tx socket"};
+
+    // sessions that are recording - getGlobal() sums these and the ones that have finished.
+    // weak so a session nobody terminated can still be collected
+    private final static Set<WeakReference<PipelineTimings>> LIVE = ConcurrentHashMap.newKeySet();
+    private final static PipelineTimings RETIRED = new PipelineTimings();
+
+    private final LatencyHistogram[] _stages = new LatencyHistogram[STAGES];
+    private WeakReference<PipelineTimings> _live; // our entry in LIVE
+    // when the current stage started, 0 when no packet is in flight - one per direction
+    private long _inMark;
+    private long _outMark;
+
+    PipelineTimings() {
+        for (int i = 0; i < STAGES; i++) {
+            _stages[i] = new LatencyHistogram();
+        }
+    }
+
+    /*
+     a session starting to record.
+     */
+    static PipelineTimings open() {
+        PipelineTimings t = new PipelineTimings();
+        LIVE.removeIf(r -> r.get() == null);
+        t._live = new WeakReference<>(t);
+        LIVE.add(t._live);
+        return t;
+    }
+
+    /*
+     a session done with it - keep its samples in the global totals.
+     */
+    void close() {
+        if ((_live != null) && LIVE.remove(_live)) {
+            synchronized (RETIRED) {
+                RETIRED.merge(this);
+            }
+        }
+    }
+
+    /**
+     * all the sessions so far, finished or not, added together. The live
+     * sessions are read while they carry on recording, without locking them,
+     * so this is a sample - stages may be a packet or two apart.
+     */
+    public static PipelineTimings getGlobal() {
+        PipelineTimings r;
+        synchronized (RETIRED) {
+            r = RETIRED.snapshot();
+        }
+        for (WeakReference<PipelineTimings> ref : LIVE) {
+            PipelineTimings t = ref.get();
+            if (t == null) {
+                LIVE.remove(ref);
+            } else {
+                r.merge(t);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * forget the finished sessions' samples.
+     */
+    public static void resetGlobal() {
+        synchronized (RETIRED) {
+            for (LatencyHistogram h : RETIRED._stages) {
+                h.reset();
+            }
+        }
+    }
+
+    public LatencyHistogram getHistogram(int stage) {
+        return _stages[stage];
+    }
+
+    public static String getStageName(int stage) {
+        return NAMES[stage];
+    }
+
+    /**
+     * a copy, read the same unlocked way as getGlobal().
+     */
+    public PipelineTimings snapshot() {
+        PipelineTimings r = new PipelineTimings();
+        r.merge(this);
+        return r;
+    }
+
+    public PipelineTimings add(PipelineTimings o) {
+        PipelineTimings r = snapshot();
+        r.merge(o);
+        return r;
+    }
+
+    private void merge(PipelineTimings o) {
+        for (int i = 0; i < STAGES; i++) {
+            _stages[i].merge(o._stages[i]);
+        }
+    }
+
+    /*
+     packet thread side - a packet starts through the pipeline in one direction.
+     */
+    void start(boolean out) {
+        long now = System.nanoTime();
+        if (out) {
+            _outMark = now;
+        } else {
+            _inMark = now;
+        }
+    }
+
+    /*
+     same, unless a packet is already on its way out - for the code shared
+     by a subclass's override and its super call.
+     */
+    void startOut() {
+        if (_outMark == 0) {
+            _outMark = System.nanoTime();
+        }
+    }
+
+    void end(boolean out) {
+        if (out) {
+            _outMark = 0;
+        } else {
+            _inMark = 0;
+        }
+    }
+
+    /*
+     the stage just finished - time it from the end of the previous one.
+     */
+    void lap(int stage) {
+        boolean out = stage >= TX_BUILD;
+        long mark = out ? _outMark : _inMark;
+        if (mark == 0) {
+            return; // protect()/unprotect() called directly, not part of a packet we are timing
+        }
+        long now = System.nanoTime();
+        _stages[stage].record(now - mark);
+        if (out) {
+            _outMark = now;
+        } else {
+            _inMark = now;
+        }
+    }
+
+    /*
+     time spent between the socket read starting at readAt and now.
+     */
+    void read(long readAt) {
+        _stages[RX_SOCKET].record(System.nanoTime() - readAt);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < STAGES; i++) {
+            if (_stages[i].getCount() > 0) {
+                sb.append(NAMES[i]).append(' ').append(_stages[i]).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
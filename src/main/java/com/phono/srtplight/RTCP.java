@@ -100,7 +100,9 @@ block  +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
         int rc = (fh & ((char) (0x1f00))) >>> 8;
         int lpt = (char) (fh & ((char) (0x00ff)));
         int length = bb.getChar();
-        Log.verb("Have RTCP pkt with v=" + v + " p=" + p + " rc=" + rc + " pt=" + lpt + " lenght=" + length);
+        if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("Have RTCP pkt with v=" + v + " p=" + p + " rc=" + rc + " pt=" + lpt + " lenght=" + length);
+        }
         if (v != 2) {
             throw new InvalidRTCPPacketException("version must be 2");
         }
@@ -126,7 +128,9 @@ block  +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
                 break;
             default:
                 ret = new RTCP();
-                Log.debug("Ignoring unknown RTCP type =" + lpt);
+                if (Log.getLevel() >= Log.DEBUG) {
+                    Log.debug("Ignoring unknown RTCP type =" + lpt);
+                }
                 break;
         }
         ((Buffer) bb).position(begin + offset + 4);
@@ -370,7 +374,9 @@ block  +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
 
         public ReceiverReport(ByteBuffer bb, int rc, int length) throws InvalidRTCPPacketException {
             int expected = 1 + (6 * rc);
-            Log.verb("length expected=" + expected + " got length=" + length + " rc = " + rc);
+            if (Log.getLevel() > Log.DEBUG) {
+                Log.verb("length expected=" + expected + " got length=" + length + " rc = " + rc);
+            }
 
             if (length != expected) {
                 throw new InvalidRTCPPacketException("length mismatch expected=" + expected + " got length=" + length);
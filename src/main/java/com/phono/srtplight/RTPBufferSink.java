@@ -0,0 +1,29 @@
+package com.phono.srtplight;
+
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+/**
+ * Zero copy alternative to RTPDataSink.
+ * The payload is pb.getBuffer() from position to limit (already decrypted).
+ * It is only valid during the call - if the session has a PacketBufferPool
+ * you can retain() it to keep it and release() it when done.
+ */
+public interface RTPBufferSink {
+
+    public void packetReceived(PacketBuffer pb, long stamp, long index);
+}
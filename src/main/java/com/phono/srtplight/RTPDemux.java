@@ -0,0 +1,358 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Runs many RTP/SRTP sessions (and their RTCP, rtcp-mux style) over one UDP port.
+ *
+ * Build each session on getSocket() and add it here rather than calling
+ * startrecv(). Inbound RTP is routed by SSRC; sessions whose remote SSRC isn't
+ * known yet are matched on their far address (and payload type, for BUNDLE)
+ * and an SSRC is learnt once the session has accepted (for SRTP
+ * authenticated) a packet from it - so a spoofed packet can't claim the
+ * session. Sessions stay matchable by address, so a peer can add SSRCs
+ * (simulcast, RTX) later. RTCP (PT 200-206) goes
+ * to the RTCPPacketSink of the session the sender SSRC belongs to (or,
+ * failing that, one from the same far address), eg that session's
+ * SRTCPProtocolImpl's inbound() - each has its own keys. setRTCPSink(r)
+ * catches whatever is left.
+ *
+ * The shared socket is never connected - many far ends use it - and
+ * sessions can't change its timeout. Routing takes no locks per packet;
+ * adding and removing sessions copies the (small) table.
+ */
+public class RTPDemux {
+
+    final static int MAXPACKET = 1490;
+
+    public interface RTCPPacketSink {
+
+        public void rtcpPacketReceived(DatagramPacket dp);
+    }
+
+    /*
+     sessions connect() their socket to the far end and set a receive timeout
+     in the constructor, that would stop us hearing anyone else (or have us
+     polling), so ignore both.
+     */
+    static class SharedSocket extends DatagramSocket {
+
+        SharedSocket(SocketAddress local) throws SocketException {
+            super(local);
+        }
+
+        @Override
+        public void connect(SocketAddress addr) {
+            Log.verb("shared RTP socket not connecting to " + addr);
+        }
+
+        @Override
+        public void connect(InetAddress address, int port) {
+            Log.verb("shared RTP socket not connecting to " + address + ":" + port);
+        }
+
+        @Override
+        public void setSoTimeout(int timeout) {
+            Log.verb("shared RTP socket keeping its own timeout, not " + timeout);
+        }
+    }
+
+    /*
+     who gets what. Never changed once published - the receive thread reads
+     it without locking, the (rare) changes copy it and swap the copy in.
+     */
+    static final class Routes {
+
+        final IntMap<RTPProtocolImpl> bySsrc;
+        final HashMap<SocketAddress, RTPProtocolImpl[]> byFar;
+        final HashMap<RTPProtocolImpl, RTCPPacketSink> rtcpBySession;
+
+        Routes() {
+            bySsrc = new IntMap<>();
+            byFar = new HashMap<>();
+            rtcpBySession = new HashMap<>();
+        }
+
+        Routes(Routes o) {
+            bySsrc = new IntMap<>();
+            o.bySsrc.forEach(bySsrc::put);
+            byFar = new HashMap<>(o.byFar);
+            rtcpBySession = new HashMap<>(o.rtcpBySession);
+        }
+
+        /*
+         is s one of the sessions expecting packets from this far end.
+         */
+        boolean has(SocketAddress from, RTPProtocolImpl s) {
+            RTPProtocolImpl[] l = byFar.get(from);
+            if (l != null) {
+                for (RTPProtocolImpl c : l) {
+                    if (c == s) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private final SharedSocket _ds;
+    private volatile Routes _routes = new Routes();
+    private RTCPPacketSink _rtcp;
+    private Thread _listen;
+    private volatile long _dropped; // only the receive thread writes
+
+    public RTPDemux(SocketAddress local) throws SocketException {
+        _ds = new SharedSocket(local);
+    }
+
+    public DatagramSocket getSocket() {
+        return _ds;
+    }
+
+    /**
+     * route packets with this SSRC to the session.
+     */
+    public synchronized void addSession(RTPProtocolImpl s, long ssrc) {
+        Routes r = new Routes(_routes);
+        r.bySsrc.put((int) ssrc, s);
+        _routes = r;
+    }
+
+    /**
+     * route the first packet from the session's far address (with its payload type)
+     * to it and learn the SSRC from that.
+     */
+    public synchronized void addSession(RTPProtocolImpl s) {
+        if (s._far == null) {
+            throw new IllegalArgumentException("session has no far address to match on");
+        }
+        Routes r = new Routes(_routes);
+        RTPProtocolImpl[] l = r.byFar.get(s._far);
+        if (l == null) {
+            l = new RTPProtocolImpl[]{s};
+        } else {
+            l = Arrays.copyOf(l, l.length + 1);
+            l[l.length - 1] = s;
+        }
+        r.byFar.put(s._far, l);
+        _routes = r;
+    }
+
+    public synchronized void removeSession(RTPProtocolImpl s) {
+        Routes r = new Routes(_routes);
+        r.rtcpBySession.remove(s);
+        ArrayList<Integer> gone = new ArrayList<>();
+        r.bySsrc.forEach((k, v) -> {
+            if (v == s) {
+                gone.add(k);
+            }
+        });
+        for (Integer k : gone) {
+            r.bySsrc.remove(k);
+        }
+        if (s._far != null) {
+            RTPProtocolImpl[] l = r.byFar.get(s._far);
+            if (l != null) {
+                ArrayList<RTPProtocolImpl> keep = new ArrayList<>(Arrays.asList(l));
+                keep.remove(s);
+                if (keep.isEmpty()) {
+                    r.byFar.remove(s._far);
+                } else {
+                    r.byFar.put(s._far, keep.toArray(new RTPProtocolImpl[keep.size()]));
+                }
+            }
+        }
+        _routes = r;
+    }
+
+    /**
+     * RTCP nobody else claims.
+     */
+    public void setRTCPSink(RTCPPacketSink r) {
+        _rtcp = r;
+    }
+
+    /**
+     * RTCP for this session - sent by one of its SSRCs, or from its far
+     * address before any of them are known.
+     */
+    public synchronized void setRTCPSink(RTPProtocolImpl s, RTCPPacketSink r) {
+        Routes rs = new Routes(_routes);
+        if (r == null) {
+            rs.rtcpBySession.remove(s);
+        } else {
+            rs.rtcpBySession.put(s, r);
+        }
+        _routes = rs;
+    }
+
+    public long getDropped() {
+        return _dropped;
+    }
+
+    public void start() {
+        _listen = new Thread(this::irun);
+        _listen.setName("RTPDemux" + _ds.getLocalPort());
+        _listen.start();
+    }
+
+    public void terminate() {
+        _listen = null;
+        _ds.close();
+    }
+
+    /*
+     RFC 5761 - RTCP packet types sit where an RTP marker bit plus PT 72-78 would.
+     */
+    static boolean isRTCP(byte[] packet, int len) {
+        int pt = packet[1] & 0xff;
+        return (len >= 8) && (pt >= 200) && (pt <= 206);
+    }
+
+    /*
+     the sink for an RTCP packet - by the sender SSRC, then by where it came from.
+     */
+    RTCPPacketSink routeRTCP(Routes rs, byte[] packet, SocketAddress from) {
+        int ssrc = ((packet[4] & 0xff) << 24) | ((packet[5] & 0xff) << 16) | ((packet[6] & 0xff) << 8) | (packet[7] & 0xff);
+        RTCPPacketSink r = null;
+        RTPProtocolImpl s = rs.bySsrc.get(ssrc);
+        if (s != null) {
+            r = rs.rtcpBySession.get(s);
+        }
+        if (r == null) {
+            RTPProtocolImpl[] l = rs.byFar.get(from);
+            if (l != null) {
+                for (RTPProtocolImpl c : l) {
+                    r = rs.rtcpBySession.get(c);
+                    if (r != null) {
+                        break;
+                    }
+                }
+            }
+        }
+        return (r == null) ? _rtcp : r;
+    }
+
+    static int ssrc(byte[] packet) {
+        return ((packet[8] & 0xff) << 24) | ((packet[9] & 0xff) << 16) | ((packet[10] & 0xff) << 8) | (packet[11] & 0xff);
+    }
+
+    /*
+     s accepted a packet from ssrc - route the rest of them straight there,
+     unless it has been removed or someone else got the SSRC meanwhile.
+     */
+    synchronized void learn(int ssrc, RTPProtocolImpl s, SocketAddress from) {
+        Routes r = _routes;
+        if (r.has(from, s) && (r.bySsrc.get(ssrc) == null)) {
+            r = new Routes(r);
+            r.bySsrc.put(ssrc, s);
+            _routes = r;
+            Log.debug("RTPDemux learnt ssrc " + (ssrc & 0xffffffffL) + " for " + s._session);
+        }
+    }
+
+    /*
+     hand the packet to s - true if it was accepted. While learning the packet
+     may well not be for s at all, so it is only a trial - s doesn't count
+     or report it as an auth failure.
+     */
+    private boolean deliver(RTPProtocolImpl s, DatagramPacket dp, byte[] packet, int len, SocketAddress from, boolean learning) {
+        s._trial = learning;
+        try {
+            s.received();
+            s.dispatch(dp, packet, len, from);
+            return true;
+        } catch (RTPPacketException ex) {
+            if (!learning) {
+                s.receiveFailed(ex);
+            }
+        } catch (IOException ex) {
+            s.receiveFailed(ex);
+        } finally {
+            s._trial = false;
+        }
+        return false;
+    }
+
+    void demux(DatagramPacket dp) {
+        byte[] packet = dp.getData();
+        int len = dp.getLength();
+        SocketAddress from = dp.getSocketAddress(); // a new one each call, so just the once
+        Routes rs = _routes;
+        if (isRTCP(packet, len)) {
+            RTCPPacketSink r = routeRTCP(rs, packet, from);
+            if (r != null) {
+                r.rtcpPacketReceived(dp);
+            } else {
+                _dropped++;
+            }
+            return;
+        }
+        if (len < RTPProtocolImpl.RTPHEAD) {
+            _dropped++;
+            return;
+        }
+        int ssrc = ssrc(packet);
+        RTPProtocolImpl s = rs.bySsrc.get(ssrc);
+        if (s != null) {
+            deliver(s, dp, packet, len, from, false);
+            return;
+        }
+        // not one we know - try the sessions expecting this far end and payload type
+        RTPProtocolImpl[] cands = rs.byFar.get(from);
+        if (cands != null) {
+            int ptype = packet[1] & 0x7f;
+            for (RTPProtocolImpl c : cands) {
+                if ((c._ptype == ptype) && deliver(c, dp, packet, len, from, true)) {
+                    learn(ssrc, c, from);
+                    return;
+                }
+            }
+        }
+        _dropped++;
+        if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("RTPDemux no session for packet from " + from);
+        }
+    }
+
+    private void irun() {
+        byte[] data = new byte[MAXPACKET];
+        DatagramPacket dp = new DatagramPacket(data, data.length);
+        while (_listen != null) {
+            try {
+                dp.setData(data, 0, data.length);
+                _ds.receive(dp);
+                demux(dp);
+            } catch (IOException ex) {
+                if (_listen != null) {
+                    Log.debug("RTPDemux " + ex.toString());
+                }
+            }
+        }
+    }
+}
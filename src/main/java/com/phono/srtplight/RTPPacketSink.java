@@ -0,0 +1,31 @@
+package com.phono.srtplight;
+
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Zero copy alternative to RTPDataSink that also gets the parsed header.
+ * payload is a read only view of the receive buffer, position to limit,
+ * already decrypted. Both it and the header are reused for the next packet,
+ * so copy anything you want to keep before returning.
+ */
+public interface RTPPacketSink {
+
+    public void packetReceived(RtpHeader header, ByteBuffer payload, long index);
+}
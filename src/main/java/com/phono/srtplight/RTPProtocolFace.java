@@ -35,9 +35,27 @@ public interface RTPProtocolFace {
 
     public void sendPacket(byte[] data, long i, int _ptype) throws SocketException, IOException;
 
+    /**
+     * send with the marker bit set as given - implementations that can't
+     * set it just send the packet.
+     */
+    public default void sendPacket(byte[] data, long stamp, int ptype, boolean marker) throws SocketException, IOException {
+        sendPacket(data, stamp, ptype);
+    }
+
     public void setDTMFPayloadType(int type);
 
     public void sendDigit(String value, long stamp, int samples, int duration ) throws SocketException, IOException;
     public void setRealloc(boolean v);
 
+    /**
+     * send a frame's worth of packets back to back, same stamp, marker (if set)
+     * on the last one only.
+     */
+    public default void sendBatch(byte[][] data, long stamp, int ptype, boolean marker) throws IOException {
+        for (int i = 0; i < data.length; i++) {
+            sendPacket(data[i], stamp, ptype, marker && (i == data.length - 1));
+        }
+    }
+
 }
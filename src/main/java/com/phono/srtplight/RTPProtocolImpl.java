@@ -17,13 +17,17 @@ package com.phono.srtplight;
  *
  */
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.SocketException;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Random;
 
 public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
@@ -33,7 +37,7 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
     final static Random _rand = new SecureRandom();
     private RTPDataSink _rtpds;
     /*  inbound state vars */
-    private long _sync = -1;
+    long _sync = -1;
     protected long _index;
     private boolean _first;
     protected long _roc = 0; // only used for inbound we _know_ the answer for outbound.
@@ -57,9 +61,32 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
     private int _dtmfType = 101;
     private Exception _lastx;
     private boolean _realloc = false;
-    private long[] csrc;
-    private byte [] extens;
-    private Character extype;
+    private ByteBuffer _rxBuf; // wrapper over the last receive array
+    private boolean _haveHdr; // _hdr describes the packet being delivered
+    private RTPSelectorEngine _engine; // null when we have our own _listen thread
+    private boolean _virtualRecv = false;
+    private ByteBuffer[] _batch = new ByteBuffer[0]; // reused by sendBatch()
+    PacketBufferPool _pool; // if set we receive into pooled buffers, no per packet allocation
+    private RTPBufferSink _bufSink;
+    private RTPPacketSink _pktSink;
+    private final RtpHeader _hdr = new RtpHeader(); // reused for every inbound packet
+    private PacketBuffer _wrapped; // unpooled view of our receive array
+    /* outbound header extras */
+    private long[] _outCsrcs;
+    private int _outExtProfile = -1;
+    private byte[] _outExt;
+    private int _outExtLen;
+    private ByteBuffer _sendBuf; // reused by getPayloadBuffer()
+    private ExtensionMap _extMap;
+    private final RtpExtensions _exts = new RtpExtensions();
+    private DatagramPacket _sendDp;
+    private byte[] _sendCopy; // for sending buffers with no array
+    private volatile boolean _blockingRecv = false; // irun() is parked in receive() until terminate() closes _ds
+    final RTPStats _stats = new RTPStats(); // live counts - see getStats()
+    boolean _trial; // RTPDemux is trying a packet that may not be ours - don't count it against us
+    private long _lastRx; // nanoTime of the last receive, 0 unless a ReceiveStall event is being recorded
+    private long _stallNanos = 200000000L;
+    PipelineTimings _timings; // null unless setTimings(true)
 
     public RTPProtocolImpl(int id, DatagramSocket ds, InetSocketAddress far, int type) {
         _ds = ds;
@@ -101,11 +128,50 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
         Log.debug("RTP session " + this.getClass().getSimpleName() + _session);
     }
 
+    /**
+     * decode RFC 8285 header extensions with these ids on receive -
+     * see getExtensions().
+     */
+    public void setExtensionMap(ExtensionMap map) {
+        _extMap = map;
+    }
+
+    /**
+     * registered header extensions of the packet being delivered.
+     * Only valid in the sink callback - null if there is no ExtensionMap.
+     */
+    public RtpExtensions getExtensions() {
+        return (_haveHdr && (_extMap != null)) ? _exts : null;
+    }
+
+    /**
+     * header extension of the packet being delivered, copied out on demand.
+     * Only valid in the sink callback - null if it has none.
+     * getExtensions() has typed accessors that don't allocate.
+     */
     public byte [] getExtens(){
-        return extens;
+        return (_haveHdr && _hdr.hasExtension()) ? _hdr.getExtension() : null;
     }
+
+    /**
+     * 'defined by profile' field of the current packet's header extension, or null.
+     */
     public Character getExtype(){
-        return extype;
+        return (_haveHdr && _hdr.hasExtension()) ? Character.valueOf((char) _hdr.getExtensionProfile()) : null;
+    }
+
+    /**
+     * header of the packet being delivered - only valid in the sink callback.
+     */
+    public RtpHeader getHeader() {
+        return _haveHdr ? _hdr : null;
+    }
+
+    private ByteBuffer rxBuffer(byte[] packet) {
+        if ((_rxBuf == null) || (_rxBuf.array() != packet)) {
+            _rxBuf = ByteBuffer.wrap(packet);
+        }
+        return _rxBuf;
     }
     public void setSSRC(long v) {
         _csrcid = v;
@@ -119,17 +185,105 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
         _realloc = v;
     }
 
+    /**
+     * run the receive loop on a virtual thread (Java 21+) if the runtime has them,
+     * otherwise startrecv() falls back to the usual platform thread.
+     * Must be set before startrecv(). The virtual thread blocks in receive()
+     * with no socket timeout, so terminate() closes the socket to stop it -
+     * don't share the socket with anything that outlives the session.
+     */
+    public void setVirtualRecv(boolean v) {
+        _virtualRecv = v;
+    }
+
+    /**
+     * a gap between received packets longer than this is recorded as a
+     * JFR ReceiveStall event (when one is being recorded). 200ms by default.
+     */
+    public void setRecvStallThreshold(long millis) {
+        _stallNanos = millis * 1000000L;
+    }
+
+    /**
+     * time each stage of the receive and send pipelines into per session
+     * histograms - see getTimings() and PipelineTimings.getGlobal().
+     * Costs a System.nanoTime() per stage per packet while on.
+     */
+    public void setTimings(boolean on) {
+        if (on && (_timings == null)) {
+            _timings = PipelineTimings.open();
+        } else if (!on && (_timings != null)) {
+            _timings.close();
+            _timings = null;
+        }
+    }
+
+    /**
+     * a copy of this session's stage timings, null if they are off.
+     */
+    public PipelineTimings getTimings() {
+        PipelineTimings pt = _timings;
+        return (pt == null) ? null : pt.snapshot();
+    }
+
+    /*
+     a packet for us has just come off the socket.
+     */
+    void received() {
+        _lastRx = SRTPEvents.received(_session, _lastRx, _stallNanos);
+    }
+
+    /*
+     Thread.ofVirtual().name(n).unstarted(r) - by reflection since we build for 11.
+     returns null if this JVM has no virtual threads.
+     */
+    static Thread newVirtualThread(String name, Runnable r) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> bc = Class.forName("java.lang.Thread$Builder");
+            builder = bc.getMethod("name", String.class).invoke(builder, name);
+            Method unstarted = bc.getMethod("unstarted", Runnable.class);
+            return (Thread) unstarted.invoke(builder, r);
+        } catch (ReflectiveOperationException ex) {
+            Log.debug("No virtual threads on this JVM " + ex.toString());
+            return null;
+        }
+    }
+
     protected void irun() {
         byte[] data = new byte[1490];
         DatagramPacket dp = new DatagramPacket(data, data.length);
         Log.debug("Max Datagram size " + data.length);
         Log.debug("address is  " + _ds.getLocalSocketAddress().toString());
         long count = 0;
+        boolean pooled = (_pool != null) && !_pool.isDirect();
+        if ((_pool != null) && !pooled) {
+            Log.warn("Direct PacketBufferPool needs a channel (RTPSelectorEngine) - not pooling");
+        }
         while (_listen != null) {
+            PacketBuffer pb = null;
             try {
+                if (pooled) {
+                    pb = _pool.acquire();
+                    ByteBuffer bb = pb.getBuffer();
+                    dp.setData(bb.array(), bb.arrayOffset(), bb.capacity());
+                    _ds.receive(dp);
+                    received();
+                    ((Buffer) bb).limit(dp.getLength());
+                    PacketBuffer p = pb;
+                    pb = null; // parsePacket owns it now
+                    parsePacket(p);
+                    count++;
+                    continue;
+                }
                 Log.verb("rtp loop");
                 _ds.receive(dp);
-                parsePacket(dp);
+                received();
+                if (inPlace()) {
+                    parsePacket(wrapped(dp.getData(), dp.getLength()));
+                } else {
+                    parsePacket(dp);
+                }
                 count++;
                 if (_realloc) {
                     data = new byte[1490];
@@ -140,8 +294,15 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
                     Log.debug("Timeout waiting for packet");
                 }
             } catch (IOException ex) {
+                if (_listen == null) {
+                    break; // terminate() closed the socket under us
+                }
                 Log.debug(this.getClass().getSimpleName() + " " + ex.toString());
                 _lastx = ex;
+            } finally {
+                if (pb != null) {
+                    pb.release();
+                }
             }
         }
         if (!_ds.isClosed()) {
@@ -154,8 +315,94 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
         _rtpds = ds;
     }
 
+    /**
+     * receive into buffers from this pool - set before startrecv().
+     * Payloads go to the RTPBufferSink if there is one, otherwise they are
+     * copied out for the RTPDataSink.
+     */
+    public void setBufferPool(PacketBufferPool pool) {
+        _pool = pool;
+    }
+
+    public void setRTPBufferSink(RTPBufferSink s) {
+        _bufSink = s;
+    }
+
+    /**
+     * get a read only view of each payload plus the parsed header, no copies.
+     */
+    public void setRTPPacketSink(RTPPacketSink s) {
+        _pktSink = s;
+    }
+
+    /*
+     do the buffer sinks want packets decrypted in place rather than copied out.
+     */
+    boolean inPlace() {
+        return (_pool != null) || (_bufSink != null) || (_pktSink != null);
+    }
+
+    /*
+     reusable unpooled PacketBuffer over a receive array holding len bytes.
+     */
+    PacketBuffer wrapped(byte[] data, int len) {
+        if ((_wrapped == null) || (_wrapped.getBuffer().array() != data)) {
+            _wrapped = new PacketBuffer(null, ByteBuffer.wrap(data));
+        }
+        ByteBuffer bb = _wrapped.getBuffer();
+        ((Buffer) bb).clear();
+        ((Buffer) bb).limit(len);
+        _wrapped.acquired();
+        return _wrapped;
+    }
+
     public void terminate() {
         _listen = null;
+        if (_engine != null) {
+            _engine.remove(this);
+        }
+        if (_blockingRecv) {
+            _ds.close(); // wake irun() from its receive()
+        }
+        if (_timings != null) {
+            _timings.close(); // still readable, but counted in the global totals as finished
+        }
+    }
+
+    void setEngine(RTPSelectorEngine e) {
+        _engine = e;
+    }
+
+    /*
+     called on an RTPSelectorEngine thread with a packet it has just read.
+     */
+    void dispatch(DatagramPacket dp, byte[] data, int len, SocketAddress from) throws IOException {
+        dispatch(dp, data, len, from, null);
+    }
+
+    /*
+     same, with a ByteBuffer already wrapped round data (a ring slot's) so the
+     header can be read without wrapping a new one for every packet.
+     */
+    void dispatch(DatagramPacket dp, byte[] data, int len, SocketAddress from, ByteBuffer wrapped) throws IOException {
+        if ((wrapped != null) && !_realloc && (wrapped.array() == data)) {
+            _rxBuf = wrapped;
+        }
+        if (_realloc) {
+            data = Arrays.copyOf(data, len);
+        }
+        if (inPlace()) {
+            parsePacket(wrapped(data, len));
+            return;
+        }
+        dp.setData(data, 0, len);
+        dp.setSocketAddress(from);
+        parsePacket(dp);
+    }
+
+    void receiveFailed(Exception ex) {
+        Log.debug(this.getClass().getSimpleName() + " " + ex.toString());
+        _lastx = ex;
     }
 
     static long get4ByteInt(byte[] b, int offs) {
@@ -176,50 +423,63 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
 
     public Exception getNClearLastX() {
         Exception ret = _lastx;
-        ret = null;
+        _lastx = null;
         return ret;
     }
 
+    /**
+     * a copy of this session's packet counters - cheap enough to poll.
+     */
+    public RTPStats getStats() {
+        return _stats.snapshot();
+    }
+
     public void sendPacket(byte[] data, long stamp, int ptype, boolean marker) throws IOException {
         sendPacket(data, stamp, (char) _seqno, ptype, marker);
         _seqno++;
     }
 
     public void sendPacket(byte[] data, long stamp, char seqno, int ptype, boolean marker) throws IOException {
-        // skip X
-        // skip cc
-        // skip M
-        // all the above are zero.
+        sendPacket(data, stamp, seqno, ptype, marker, true);
+    }
+
+    /*
+     index is the seqno with the roc above it - what the tag is computed for.
+     seal false means data is already protected and carries its own tag.
+     */
+    void sendPacket(byte[] data, long stamp, long index, int ptype, boolean marker, boolean seal) throws IOException {
+        PipelineTimings pt = _timings;
+        if (pt != null) {
+            pt.startOut(); // SRTP's override may have started already
+        }
+        char seqno = (char) index;
         try {
-            byte[] payload = new byte[RTPHEAD + data.length + _tailOut]; // assume no pad and no cssrcs
-            copyBits(RTPVER, 2, payload, 0); // version
-            // skip pad
-            // skip X
-            // skip cc
-            // skip M
-            // all the above are zero.
-            if (marker) {
-                copyBits(1, 1, payload, 8);
-            }
-            copyBits(ptype, 7, payload, 9);
-            payload[2] = (byte) (seqno >> 8);
-            payload[3] = (byte) seqno;
-            payload[4] = (byte) (stamp >> 24);
-            payload[5] = (byte) (stamp >> 16);
-            payload[6] = (byte) (stamp >> 8);
-            payload[7] = (byte) stamp;
-            payload[8] = (byte) (_csrcid >> 24);
-            payload[9] = (byte) (_csrcid >> 16);
-            payload[10] = (byte) (_csrcid >> 8);
-            payload[11] = (byte) _csrcid;
-            for (int i = 0; i < data.length; i++) {
-                payload[i + RTPHEAD] = data[i];
-            }
-            appendAuth(payload);
+            int head = outHeaderLength();
+            byte[] payload = new byte[head + data.length + (seal ? _tailOut : 0)];
+            RtpHeader.write(payload, 0, marker, ptype, seqno, stamp, _csrcid, _outCsrcs, _outExtProfile, _outExt, _outExtLen);
+            System.arraycopy(data, 0, payload, head, data.length);
+            if (pt != null) {
+                pt.lap(PipelineTimings.TX_BUILD);
+            }
+            if (seal) {
+                appendAuth(payload, index);
+            }
+            if (pt != null) {
+                pt.lap(PipelineTimings.TX_AUTH);
+            }
             sendToNetwork(payload);
+            if (pt != null) {
+                pt.lap(PipelineTimings.TX_SOCKET);
+                pt.end(true);
+            }
 
-            Log.verb("sending RTP " + _ptype + " packet length " + payload.length + "seq =" + (int) seqno + " csrc=" + _csrcid + " stamp=" + stamp);
+            if (Log.getLevel() > Log.DEBUG) {
+                Log.verb("sending RTP " + _ptype + " packet length " + payload.length + "seq =" + (int) seqno + " csrc=" + _csrcid + " stamp=" + stamp);
+            }
         } catch (IOException ex) {
+            if (pt != null) {
+                pt.end(true);
+            }
             _lastx = ex;
             Log.error("Not sending RTP " + _ptype + "ex = " + ex.getMessage());
             throw ex;
@@ -227,10 +487,227 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
 
     }
 
+    /**
+     * csrcs to put in outbound headers, null for none. At most 15.
+     */
+    public void setOutboundCsrcs(long[] csrcs) {
+        if (csrcs != null) {
+            RtpHeader.checkCsrcCount(csrcs.length);
+        }
+        _outCsrcs = csrcs;
+    }
+
+    /**
+     * header extension for outbound packets - 'defined by profile' value
+     * (0xBEDE for RFC 8285 one byte) and len bytes of data. profile -1 for none.
+     */
+    public void setOutboundExtension(int profile, byte[] data, int len) {
+        _outExtProfile = profile;
+        _outExt = data;
+        _outExtLen = len;
+    }
+
+    int outHeaderLength() {
+        return RtpHeader.headerLength((_outCsrcs == null) ? 0 : _outCsrcs.length, _outExtProfile, _outExtLen);
+    }
+
+    /**
+     * a reusable buffer to write an outbound payload straight into - no copy.
+     * Room is reserved in front for the header and after for the auth tag,
+     * put() at most maxPayload bytes from the position then call
+     * sendPayloadBuffer(). Don't change the csrcs or extension in between.
+     */
+    public ByteBuffer getPayloadBuffer(int maxPayload) {
+        int head = outHeaderLength();
+        int need = head + maxPayload + _tailOut;
+        if ((_sendBuf == null) || (_sendBuf.capacity() < need)) {
+            _sendBuf = ByteBuffer.allocate(Math.max(1500, need));
+        }
+        ((Buffer) _sendBuf).clear();
+        ((Buffer) _sendBuf).limit(head + maxPayload);
+        ((Buffer) _sendBuf).position(head);
+        return _sendBuf;
+    }
+
+    /**
+     * send the payload written into getPayloadBuffer() - it ends at the position.
+     */
+    public void sendPayloadBuffer(ByteBuffer bb, long stamp, int ptype, boolean marker) throws IOException {
+        if (bb != _sendBuf) {
+            throw new IllegalArgumentException("not our payload buffer");
+        }
+        PipelineTimings pt = _timings;
+        if (pt != null) {
+            pt.start(true);
+        }
+        try {
+            int end = ((Buffer) bb).position();
+            RtpHeader.write(bb.array(), 0, marker, ptype, (char) _seqno, stamp, _csrcid, _outCsrcs, _outExtProfile, _outExt, _outExtLen);
+            ((Buffer) bb).limit(end);
+            ((Buffer) bb).position(0);
+            if (pt != null) {
+                pt.lap(PipelineTimings.TX_BUILD);
+            }
+            protectOut(bb);
+            sendToNetwork(bb);
+            if (pt != null) {
+                pt.lap(PipelineTimings.TX_SOCKET);
+                pt.end(true);
+            }
+            _seqno++;
+        } catch (IOException ex) {
+            if (pt != null) {
+                pt.end(true);
+            }
+            _lastx = ex;
+            Log.error("Not sending RTP " + _ptype + "ex = " + ex.getMessage());
+            throw ex;
+        }
+    }
+
+    /**
+     * every packet gets the session's current outbound extension, see the
+     * RtpExtensionWriter.PerPacket form for per packet ones.
+     */
+    public void sendBatch(byte[][] data, long stamp, int ptype, boolean marker) throws IOException {
+        sendBatch(data, stamp, ptype, marker, null, null);
+    }
+
+    /**
+     * as above, but w is reset and filled by ext for each packet before its
+     * header is written. The last packet's extension stays set on the session.
+     */
+    public void sendBatch(byte[][] data, long stamp, int ptype, boolean marker, RtpExtensionWriter w, RtpExtensionWriter.PerPacket ext) throws IOException {
+        int n = data.length;
+        if (_batch.length < n) {
+            _batch = Arrays.copyOf(_batch, n);
+        }
+        PipelineTimings pt = _timings;
+        try {
+            // build and protect them all, then hit the network in one tight loop
+            int head = outHeaderLength();
+            for (int i = 0; i < n; i++) {
+                if (pt != null) {
+                    pt.start(true);
+                }
+                if (ext != null) {
+                    ext.extend(w.reset(), i, (char) _seqno);
+                    w.applyTo(this);
+                    head = outHeaderLength();
+                }
+                int plen = head + data[i].length;
+                ByteBuffer bb = _batch[i];
+                if ((bb == null) || (bb.capacity() < plen + _tailOut)) {
+                    bb = ByteBuffer.allocate(Math.max(1500, plen + _tailOut));
+                    _batch[i] = bb;
+                }
+                ((Buffer) bb).clear();
+                boolean m = marker && (i == n - 1);
+                RtpHeader.write(bb.array(), 0, m, ptype, (char) _seqno, stamp, _csrcid, _outCsrcs, _outExtProfile, _outExt, _outExtLen);
+                System.arraycopy(data[i], 0, bb.array(), head, data[i].length);
+                ((Buffer) bb).limit(plen);
+                if (pt != null) {
+                    pt.lap(PipelineTimings.TX_BUILD);
+                }
+                protectOut(bb);
+                _seqno++;
+            }
+            for (int i = 0; i < n; i++) {
+                if (pt != null) {
+                    pt.start(true);
+                }
+                sendToNetwork(_batch[i]);
+                if (pt != null) {
+                    pt.lap(PipelineTimings.TX_SOCKET);
+                }
+            }
+            if (pt != null) {
+                pt.end(true);
+            }
+            if (Log.getLevel() > Log.DEBUG) {
+                Log.verb("sent batch of " + n + " RTP " + ptype + " packets stamp=" + stamp);
+            }
+        } catch (IOException ex) {
+            if (pt != null) {
+                pt.end(true);
+            }
+            _lastx = ex;
+            Log.error("Not sending RTP batch " + _ptype + "ex = " + ex.getMessage());
+            throw ex;
+        }
+    }
+
+    /*
+     finish an outbound packet in place, the packet is position to limit.
+     nothing to do in rtp
+     */
+    void protectOut(ByteBuffer pkt) throws RTPPacketException {
+    }
+
+    /*
+     send position to limit of pkt - no allocation.
+     */
+    protected void sendToNetwork(ByteBuffer pkt) throws IOException {
+        DatagramChannel dc = _ds.getChannel();
+        if (dc != null) {
+            int sent = dc.isConnected() ? dc.write(pkt) : dc.send(pkt, _far);
+            if (sent == 0) {
+                Log.debug("send buffer full, dropped RTP packet");
+            } else {
+                _stats.packetsOut++;
+                _stats.bytesOut += sent;
+            }
+            return;
+        }
+        int len = pkt.remaining();
+        byte[] data;
+        int off;
+        if (pkt.hasArray()) {
+            data = pkt.array();
+            off = pkt.arrayOffset() + ((Buffer) pkt).position();
+        } else {
+            // direct or read only - copy out, reusing the array
+            if ((_sendCopy == null) || (_sendCopy.length < len)) {
+                _sendCopy = new byte[len];
+            }
+            // bulk get, then put the position back (absolute bulk get is 13+)
+            int pos = ((Buffer) pkt).position();
+            pkt.get(_sendCopy, 0, len);
+            ((Buffer) pkt).position(pos);
+            data = _sendCopy;
+            off = 0;
+        }
+        if (_sendDp == null) {
+            _sendDp = new DatagramPacket(data, 0);
+        }
+        _sendDp.setData(data, off, len);
+        if (_far != null) {
+            _sendDp.setSocketAddress(_far);
+        }
+        _ds.send(_sendDp);
+        ((Buffer) pkt).position(((Buffer) pkt).limit()); // consumed, as a channel write would
+        _stats.packetsOut++;
+        _stats.bytesOut += len;
+    }
+
     protected void sendToNetwork(byte[] payload) throws IOException {
+        DatagramChannel dc = _ds.getChannel();
+        if ((dc != null) && !dc.isBlocking()) {
+            // socket adaptor refuses to send once an RTPSelectorEngine owns the channel
+            int sent = dc.isConnected() ? dc.write(ByteBuffer.wrap(payload)) : dc.send(ByteBuffer.wrap(payload), _far);
+            if (sent == 0) {
+                Log.debug("send buffer full, dropped RTP packet");
+            } else {
+                _stats.packetsOut++;
+                _stats.bytesOut += sent;
+            }
+            return;
+        }
         DatagramPacket p = (_far == null) ? new DatagramPacket(payload, payload.length)
                 : new DatagramPacket(payload, payload.length, _far);
         _ds.send(p);
+        _stats.packetsOut++;
+        _stats.bytesOut += payload.length;
     }
 
     protected void parsePacket(DatagramPacket dp) throws IOException {
@@ -251,69 +728,38 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
          * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
          *
          */
+        PipelineTimings pt = _timings;
+        if (pt != null) {
+            pt.start(false);
+        }
         byte[] packet = dp.getData();
         byte[] payload;
         int plen = dp.getLength();
 
-        int ver = 0;
-        int pad = 0;
-        int csrcn = 0;
-        int mark = 0;
-        int ptype = 0;
-        char seqno = 0;
-        long stamp = 0;
-        int sync = 0;
-        int x = 0;
-        int exlen = 0;
-
-        Log.verb("got packet " + plen);
-
-        if (plen < 12) {
-            throw new RTPPacketException("Packet too short. RTP must be >12 bytes");
+        if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("got packet " + plen);
         }
-        ver = copyBits(packet, 0, 2);
-        pad = copyBits(packet, 2, 1);
-        x = copyBits(packet, 3, 1);
-        csrcn = copyBits(packet, 4, 4);
-        mark = copyBits(packet, 8, 1);
-        ptype = copyBits(packet, 9, 7);
-        ByteBuffer pb = ByteBuffer.wrap(packet);
-
-        seqno = pb.getChar(2);
-        stamp = getUnsignedInt(pb, 4);
-        sync = pb.getInt(8);
-        if (plen < (RTPHEAD + 4 * csrcn)) {
-            throw new RTPPacketException("Packet too short. CSRN =" + csrcn + " but packet only " + plen);
-        }
-
-        csrc = new long[csrcn];
-        int offs = RTPHEAD;
-        for (int i = 0; i < csrcn; i++) {
-            csrc[i] = getUnsignedInt(pb, offs);
-            offs += 4;
-        }
-        if (x > 0) {
-            extype = new Character(pb.getChar(offs));
-            offs+=2;
-            exlen = pb.getChar(offs);
-            offs+=2;
-            Log.verb("skip an extension 0x"+Integer.toHexString(extype)+" length "+exlen);
-            extens = new byte[4*exlen];
-            for (int i=0;i<extens.length;i++){
-                extens[i]= packet[offs++];
-            }
-        } else {
-            extype = null;
+        // decode the header in place - shifts and masks, csrcs and extension left in the packet
+        RtpHeader h = _hdr.wrap(rxBuffer(packet), 0, plen);
+        if (_extMap != null) {
+            _exts.wrap(h, _extMap);
         }
-        int endhead = offs;
+        int ver = h.getVersion();
+        int mark = h.getMarker() ? 1 : 0;
+        int ptype = h.getPayloadType();
+        char seqno = h.getSeqno();
+        long stamp = h.getTimestamp();
+        int sync = (int) h.getSSRC();
+        int endhead = h.getHeaderLength();
         // if padding set then last byte tells you how much to skip
-        int paylen = (pad == 0) ? (plen - offs) : ((plen - offs) - (0xff) & packet[plen - 1]);
+        int paylen = plen - endhead;
+        if (h.hasPadding()) {
+            paylen -= (0xff & packet[plen - 1]);
+        }
         // SRTP packets have a tail auth section and potentially an MKI
         paylen -= _tailIn;
-        payload = new byte[paylen];
-        int o = 0;
-        while (offs - endhead < paylen) {
-            payload[o++] = packet[offs++];
+        if (paylen < 0) {
+            throw new RTPPacketException("Packet too short for payload, header " + endhead + " packet " + plen);
         }
         // quick plausibility checks
         // should check the ip address etc - but actually we better trust the OS
@@ -323,31 +769,185 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
             throw new RTPPacketException("Only RTP version 2 supported");
         }
         if (ptype != _ptype) {
+            _stats.ptMismatches++;
             throw new RTPPacketException("Unexpected payload type " + ptype);
         }
         if (sync != _sync) {
             syncChanged(sync);
         }
-        _index = getIndex(seqno);
+        if (pt != null) {
+            pt.lap(PipelineTimings.RX_PARSE);
+        }
+        // RFC 3711 3.3 order - estimate the index, replay check, authenticate,
+        // decrypt and only then move index/roc/s_l/replay list on, so a bad packet changes nothing.
+        long idx = getIndex(seqno);
         try {
-            updateCounters(seqno);
-            checkAuth(packet, plen);
+            checkForReplay(idx);
+            if (pt != null) {
+                pt.lap(PipelineTimings.RX_INDEX);
+            }
+            checkAuth(packet, plen, idx);
         } catch (RTPPacketException rpx) {
-            Log.debug("Failed packet sync = " + (0 + seqno));
-            Log.debug("index is = " + _index);
-            if (this instanceof SRTPProtocolImpl) {
-                Log.debug("roc is = " + ((SRTPProtocolImpl) this)._roc);
+            rejected();
+            if (pt != null) {
+                pt.end(false);
+            }
+            if (Log.getLevel() >= Log.DEBUG) {
+                Log.debug("Failed packet sync = " + (0 + seqno));
+                Log.debug("index is = " + idx);
+                if (this instanceof SRTPProtocolImpl) {
+                    Log.debug("roc is = " + ((SRTPProtocolImpl) this)._roc);
+                }
             }
 
             throw rpx;
         }
-        deliverPayload(payload, stamp, sync, seqno, mark);
+        // copy the payload out after checkAuth - AEAD suites decrypt in place there.
+        if (pt != null) {
+            pt.lap(PipelineTimings.RX_AUTH);
+        }
+        _index = idx;
+        payload = new byte[paylen];
+        System.arraycopy(packet, endhead, payload, 0, paylen);
+        decryptIn(payload, sync);
+        if (pt != null) {
+            pt.lap(PipelineTimings.RX_DECRYPT);
+        }
+        updateCounters(seqno);
+        _stats.packetsIn++;
+        _stats.bytesIn += plen;
+        _haveHdr = true; // only for the sink - not for a packet that failed
+        try {
+            deliverPayload(payload, stamp, sync, seqno, mark);
+        } finally {
+            _haveHdr = false;
+        }
+        if (pt != null) {
+            pt.lap(PipelineTimings.RX_DELIVER);
+            pt.end(false);
+        }
 
-        Log.verb("got RTP " + ptype + " packet " + payload.length);
+        if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("got RTP " + ptype + " packet " + payload.length);
+        }
+
+    }
+
+    void checkForReplay(long index) throws RTPPacketException {
+    }
+
+    void checkAuth(byte[] packet, int plen, long index) throws RTPPacketException {
+    }
+
+    /*
+     the packet being parsed was dropped before it authenticated.
+     */
+    void rejected() {
+    }
 
+    /*
+     payload copied out of an authenticated packet, _index is set.
+     */
+    void decryptIn(byte[] payload, int ssrc) throws RTPPacketException {
     }
 
-    void checkAuth(byte[] packet, int plen) throws RTPPacketException {
+    /*
+     zero copy receive, the packet is pb's buffer from position to limit.
+     Takes over the caller's reference to pb. Unlike parsePacket(DatagramPacket)
+     the csrcs and extension are not copied out - they are in the buffer.
+     */
+    protected void parsePacket(PacketBuffer pb) throws IOException {
+        PipelineTimings pt = _timings;
+        if (pt != null) {
+            pt.start(false);
+        }
+        try {
+            ByteBuffer pkt = pb.getBuffer();
+            Buffer b = (Buffer) pkt;
+            int start = b.position();
+            int wire = b.remaining();
+            RtpHeader h = _hdr.wrap(pkt, start, wire);
+            if (_extMap != null) {
+                _exts.wrap(h, _extMap);
+            }
+            if (h.getVersion() != RTPVER) {
+                throw new RTPPacketException("Only RTP version 2 supported");
+            }
+            int ptype = h.getPayloadType();
+            if (ptype != _ptype) {
+                _stats.ptMismatches++;
+                throw new RTPPacketException("Unexpected payload type " + ptype);
+            }
+            char seqno = h.getSeqno();
+            int sync = (int) h.getSSRC();
+            if (sync != _sync) {
+                syncChanged(sync);
+            }
+            if (pt != null) {
+                pt.lap(PipelineTimings.RX_PARSE);
+            }
+            long idx = unprotectIn(pkt, seqno); // pulls the limit back over any auth tag
+            int head = h.getHeaderLength();
+            int end = b.limit();
+            if (h.hasPadding()) {
+                end -= pkt.get(end - 1) & 0xff;
+            }
+            if (end < start + head) {
+                throw new RTPPacketException("Bad padding length");
+            }
+            b.limit(end);
+            b.position(start + head);
+            if (Log.getLevel() > Log.DEBUG) {
+                Log.verb("got " + h + " payload " + (end - start - head));
+            }
+            _stats.packetsIn++;
+            _stats.bytesIn += wire;
+            _haveHdr = true;
+            deliverPayload(pb, h, idx);
+            if (pt != null) {
+                pt.lap(PipelineTimings.RX_DELIVER);
+            }
+        } finally {
+            _haveHdr = false;
+            if (pt != null) {
+                pt.end(false);
+            }
+            pb.release();
+        }
+    }
+
+    /*
+     check, decrypt in place and commit the inbound counters.
+     pkt is position to limit, returns the packet index.
+     */
+    long unprotectIn(ByteBuffer pkt, char seqno) throws RTPPacketException {
+        long idx = getIndex(seqno);
+        _index = idx;
+        updateCounters(seqno);
+        if (_timings != null) {
+            _timings.lap(PipelineTimings.RX_INDEX);
+        }
+        return idx;
+    }
+
+    /*
+     payload is already in the clear - position to limit.
+     */
+    protected void deliverPayload(PacketBuffer pb, RtpHeader h, long index) {
+        long stamp = h.getTimestamp();
+        if (_pktSink != null) {
+            _pktSink.packetReceived(h, pb.getReadOnlyView(), index);
+        }
+        if (_bufSink != null) {
+            _bufSink.packetReceived(pb, stamp, index);
+        } else if (_rtpds != null) {
+            ByteBuffer bb = pb.getBuffer();
+            int pos = ((Buffer) bb).position();
+            byte[] payload = new byte[bb.remaining()];
+            bb.get(payload);
+            ((Buffer) bb).position(pos);
+            _rtpds.dataPacketReceived(payload, stamp, index);
+        }
     }
 
     long getIndex(
@@ -387,10 +987,7 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
         }
     }
 
-    void appendAuth(byte[] payload, char seqno) throws RTPPacketException {
-    }
-
-    void appendAuth(byte[] payload) throws RTPPacketException {
+    void appendAuth(byte[] payload, long index) throws RTPPacketException {
         // nothing to do in rtp
     }
 
@@ -398,25 +995,61 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
             char seqno) {
         // note that we have seen it.
         int diff = seqno - _s_l; // normally we expect this to be 1
-        if (seqno == 0) {
+        if ((seqno == 0) && (Log.getLevel() >= Log.DEBUG)) {
             Log.debug("seqno = 0 _index =" + _index + " _roc =" + _roc + " _s_l= " + (0 + _s_l) + " diff = " + diff + " mins=" + Short.MIN_VALUE);
         }
-        if (diff < Short.MIN_VALUE) {
-            // large negative offset so
-            _roc++; // if the old value is more than 2^15 smaller
-            // then we have wrapped
+        // RFC 3711 3.3.1 - only move on for the newest packet, going by the
+        // index getIndex() estimated. A late one from before a wrap must not
+        // drag s_l back, or the next in order packet looks like another wrap.
+        long v = _index >>> 16;
+        if (v > _roc) {
+            _stats.rocIncrements += v - _roc;
+            _roc = v;
+            SRTPEvents.rocRollover(false, _sync, v);
+            _s_l = seqno;
+        } else if ((v == _roc) && (seqno > _s_l)) {
+            _s_l = seqno;
         }
-        _s_l = seqno;
     }
 
     protected void syncChanged(long sync) throws RTPPacketException {
         if (_sync == -1) {
             _sync = sync;
         } else {
+            if (!_trial) {
+                _stats.ssrcChanges++;
+            }
             throw new RTPPacketException("Sync changed: was " + _sync + " now " + sync);
         }
     }
 
+    /*
+     length of the fixed header + csrcs + any extension.
+     */
+    static int getHeaderLength(ByteBuffer pkt, int start, int len) throws RTPPacketException {
+        if (len < RTPHEAD) {
+            throw new RTPPacketException("Packet too short. RTP must be >12 bytes");
+        }
+        int b0 = pkt.get(start);
+        int head = RTPHEAD + 4 * (b0 & 0x0f);
+        if ((b0 & 0x10) != 0) {
+            if (len < head + 4) {
+                throw new RTPPacketException("Packet too short for extension header");
+            }
+            int exlen = ((pkt.get(start + head + 2) & 0xff) << 8) | (pkt.get(start + head + 3) & 0xff);
+            head += 4 + 4 * exlen;
+        }
+        if (len < head) {
+            throw new RTPPacketException("Packet too short for header " + head + " but packet only " + len);
+        }
+        return head;
+    }
+
+    static int getInt(ByteBuffer pkt, int loc) {
+        return ((pkt.get(loc) & 0xff) << 24) | ((pkt.get(loc + 1) & 0xff) << 16)
+                | ((pkt.get(loc + 2) & 0xff) << 8) | (pkt.get(loc + 3) & 0xff);
+    }
+
     public static long getUnsignedInt(ByteBuffer bb, int loc) {
         return ((long) bb.getInt(loc) & 0xffffffffL);
     }
@@ -426,6 +1059,19 @@ public class RTPProtocolImpl extends BitUtils implements RTPProtocolFace {
     }
 
     public void startrecv() {
+        if (_virtualRecv) {
+            Thread vt = newVirtualThread(_session, this::irun);
+            if (vt != null) {
+                _listen = vt;
+                try {
+                    // park in receive rather than polling - terminate() closes the socket to stop us
+                    _ds.setSoTimeout(0);
+                    _blockingRecv = true;
+                } catch (SocketException ex) {
+                    Log.warn("Can't clear socket timeout, will poll " + ex.getMessage());
+                }
+            }
+        }
         _listen.start();
     }
 
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.SocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Optional receive engine that multiplexes many RTP sessions over a small
+ * pool of threads instead of one blocking thread per session.
+ *
+ * The session must have been built on a DatagramSocket that came from a
+ * DatagramChannel eg:
+ * <pre>
+ * DatagramChannel dc = DatagramChannel.open().bind(new InetSocketAddress(port));
+ * RTPProtocolImpl s = new RTPProtocolImpl(id, dc.socket(), far, type);
+ * engine.add(s);  // instead of s.startrecv()
+ * </pre>
+ * Each thread drains whatever datagrams its sockets have ready into a
+ * PacketRing and then runs parsePacket() over the batch, so the usual
+ * RTPDataSink callback happens on an engine thread - don't block in it.
+ */
+public class RTPSelectorEngine {
+
+    final static int MAXPACKET = 1490; // same as RTPProtocolImpl.irun()
+    final static int MAXDRAIN = 16; // packets per session per pass - stops one busy session starving the rest
+    final static int BATCH = 64; // packet slots per thread
+
+    private final Looper[] _loopers;
+    private int _next = 0;
+    private volatile boolean _running = true;
+
+    public RTPSelectorEngine(int nthreads) throws IOException {
+        this(nthreads, BATCH);
+    }
+
+    /**
+     * @param nthreads receive threads
+     * @param batch max packets read from the sockets before we process them
+     */
+    public RTPSelectorEngine(int nthreads, int batch) throws IOException {
+        if (nthreads < 1) {
+            throw new IllegalArgumentException("need at least one thread");
+        }
+        _loopers = new Looper[nthreads];
+        for (int i = 0; i < nthreads; i++) {
+            _loopers[i] = new Looper("RTPSelector" + i, batch);
+        }
+        for (Looper l : _loopers) {
+            l._thread.start();
+        }
+    }
+
+    /**
+     * start receiving for this session - use in place of startrecv().
+     *
+     * @param session an RTP or SRTP session built on a channel backed socket
+     * @throws IOException if the socket has no channel or it can't be made non blocking
+     */
+    public void add(RTPProtocolImpl session) throws IOException {
+        DatagramChannel dc = session.getDS().getChannel();
+        if (dc == null) {
+            throw new IOException("session socket has no DatagramChannel");
+        }
+        dc.configureBlocking(false);
+        Looper l;
+        synchronized (this) {
+            l = _loopers[_next];
+            _next = (_next + 1) % _loopers.length;
+        }
+        session.setEngine(this);
+        l._pending.add(session);
+        l._selector.wakeup();
+        Log.debug("RTPSelectorEngine added " + session._session + " to " + l._thread.getName());
+    }
+
+    /**
+     * stop receiving for this session and close its channel
+     * (called for you by terminate()).
+     */
+    public void remove(RTPProtocolImpl session) {
+        DatagramChannel dc = session.getDS().getChannel();
+        for (Looper l : _loopers) {
+            SelectionKey k = dc.keyFor(l._selector);
+            if (k != null) {
+                k.cancel();
+                l._selector.wakeup();
+            }
+        }
+        try {
+            dc.close();
+        } catch (IOException ex) {
+            Log.debug("RTPSelectorEngine close " + ex.getMessage());
+        }
+    }
+
+    /**
+     * stop all the engine threads - sessions are not terminated.
+     */
+    public void shutdown() {
+        _running = false;
+        for (Looper l : _loopers) {
+            l._selector.wakeup();
+        }
+    }
+
+    private class Looper implements Runnable {
+
+        final Selector _selector;
+        final Thread _thread;
+        final ConcurrentLinkedQueue<RTPProtocolImpl> _pending = new ConcurrentLinkedQueue<>();
+        final PacketRing _ring;
+        final DatagramPacket _dp = new DatagramPacket(new byte[0], 0);
+
+        Looper(String name, int batch) throws IOException {
+            _ring = new PacketRing(batch, MAXPACKET);
+            _selector = Selector.open();
+            _thread = new Thread(this);
+            _thread.setName(name);
+            _thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Log.debug("RTPSelectorEngine thread starting");
+            while (_running) {
+                try {
+                    registerPending();
+                    _selector.select();
+                    Iterator<SelectionKey> ki = _selector.selectedKeys().iterator();
+                    while (ki.hasNext()) {
+                        SelectionKey k = ki.next();
+                        ki.remove();
+                        if (k.isValid() && k.isReadable()) {
+                            drain(k);
+                        }
+                    }
+                    process();
+                } catch (IOException ex) {
+                    Log.warn("RTPSelectorEngine select " + ex.getMessage());
+                } catch (RuntimeException ex) {
+                    Log.error("RTPSelectorEngine loop " + ex);
+                }
+            }
+            try {
+                _selector.close();
+            } catch (IOException ex) {
+                Log.debug("RTPSelectorEngine close " + ex.getMessage());
+            }
+        }
+
+        private void registerPending() {
+            RTPProtocolImpl s;
+            while ((s = _pending.poll()) != null) {
+                try {
+                    s.getDS().getChannel().register(_selector, SelectionKey.OP_READ, s);
+                } catch (ClosedChannelException ex) {
+                    Log.debug("RTPSelectorEngine session closed before registration " + s._session);
+                }
+            }
+        }
+
+        private void drain(SelectionKey k) {
+            RTPProtocolImpl s = (RTPProtocolImpl) k.attachment();
+            DatagramChannel dc = (DatagramChannel) k.channel();
+            if (s.finished()) {
+                remove(s);
+                return;
+            }
+            for (int n = 0; n < MAXDRAIN; n++) {
+                if (_ring.isFull()) {
+                    process();
+                }
+                PacketRing.Slot slot = _ring.claim();
+                PacketBuffer pb = null;
+                try {
+                    ByteBuffer bb = slot.buf;
+                    if (s._pool != null) {
+                        // straight into the session's pool - no copy on the way to the sink
+                        pb = s._pool.acquire();
+                        bb = pb.getBuffer();
+                    }
+                    ((Buffer) bb).clear();
+                    slot.readAt = (s._timings != null) ? System.nanoTime() : 0;
+                    SocketAddress from = dc.receive(bb);
+                    if (from == null) {
+                        break;
+                    }
+                    slot.len = ((Buffer) bb).position();
+                    ((Buffer) bb).flip();
+                    slot.from = from;
+                    slot.session = s;
+                    slot.pb = pb;
+                    pb = null;
+                    _ring.commit();
+                } catch (IOException ex) {
+                    s.receiveFailed(ex);
+                    if (!dc.isOpen()) {
+                        break;
+                    }
+                } finally {
+                    if (pb != null) {
+                        pb.release();
+                    }
+                }
+            }
+        }
+
+        /*
+         auth/decrypt/deliver everything we have read so far.
+         */
+        private void process() {
+            PacketRing.Slot slot;
+            while ((slot = _ring.take()) != null) {
+                RTPProtocolImpl s = slot.session;
+                PacketBuffer pb = slot.pb;
+                slot.session = null;
+                slot.pb = null;
+                if (s.finished()) {
+                    if (pb != null) {
+                        pb.release();
+                    }
+                    continue;
+                }
+                s.received();
+                PipelineTimings pt = s._timings;
+                if ((pt != null) && (slot.readAt != 0)) {
+                    pt.read(slot.readAt);
+                }
+                try {
+                    if (pb != null) {
+                        s.parsePacket(pb);
+                    } else if (s.inPlace()) {
+                        s.parsePacket(slot.wrapped(slot.len));
+                    } else {
+                        s.dispatch(_dp, slot.data, slot.len, slot.from, slot.buf);
+                    }
+                } catch (IOException ex) {
+                    s.receiveFailed(ex);
+                } catch (RuntimeException ex) {
+                    // a broken sink or a packet the parser choked on - drop it, not every session on this thread
+                    Log.error("RTPSelectorEngine dropped packet for " + s._session + " " + ex);
+                    s.receiveFailed(ex);
+                }
+            }
+        }
+    }
+}
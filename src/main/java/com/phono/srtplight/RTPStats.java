@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+/**
+ * Packet counters for an RTP/SRTP session.
+ * <pre>
+ * RTPStats total = RTPStats.EMPTY;
+ * for (RTPProtocolImpl s : sessions) {
+ *     RTPStats st = s.getStats();
+ *     if (st.getAuthFailures() > 0) { ... }
+ *     total = total.add(st);
+ * }
+ * </pre>
+ * The session keeps a live instance which only its own receive and send
+ * threads write - plain fields, no locks or atomics on the packet path.
+ * getStats() hands out a copy, which may lag the live counts by a packet
+ * or two when taken from another thread.
+ */
+public class RTPStats {
+
+    public final static RTPStats EMPTY = new RTPStats();
+
+    /* inbound - written by the receive thread */
+    long packetsIn;
+    long bytesIn;
+    long authFailures;
+    long replays;
+    long tooOld;
+    long ptMismatches;
+    long ssrcChanges;
+    long rocIncrements;
+    long decryptErrors;
+    /* outbound - written by the sending thread */
+    long packetsOut;
+    long bytesOut;
+    long encryptErrors;
+
+    RTPStats() {
+    }
+
+    RTPStats snapshot() {
+        RTPStats r = new RTPStats();
+        r.packetsIn = packetsIn;
+        r.bytesIn = bytesIn;
+        r.authFailures = authFailures;
+        r.replays = replays;
+        r.tooOld = tooOld;
+        r.ptMismatches = ptMismatches;
+        r.ssrcChanges = ssrcChanges;
+        r.rocIncrements = rocIncrements;
+        r.decryptErrors = decryptErrors;
+        r.packetsOut = packetsOut;
+        r.bytesOut = bytesOut;
+        r.encryptErrors = encryptErrors;
+        return r;
+    }
+
+    /**
+     * a new RTPStats with these counts plus o's - for totals across sessions.
+     */
+    public RTPStats add(RTPStats o) {
+        RTPStats r = snapshot();
+        r.packetsIn += o.packetsIn;
+        r.bytesIn += o.bytesIn;
+        r.authFailures += o.authFailures;
+        r.replays += o.replays;
+        r.tooOld += o.tooOld;
+        r.ptMismatches += o.ptMismatches;
+        r.ssrcChanges += o.ssrcChanges;
+        r.rocIncrements += o.rocIncrements;
+        r.decryptErrors += o.decryptErrors;
+        r.packetsOut += o.packetsOut;
+        r.bytesOut += o.bytesOut;
+        r.encryptErrors += o.encryptErrors;
+        return r;
+    }
+
+    /**
+     * packets accepted and handed on to the sink.
+     */
+    public long getPacketsIn() {
+        return packetsIn;
+    }
+
+    /**
+     * bytes on the wire (headers and auth tag included) of the packets accepted.
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * SRTP packets dropped because the tag didn't match.
+     */
+    public long getAuthFailures() {
+        return authFailures;
+    }
+
+    /**
+     * SRTP packets dropped because that index had already been seen.
+     */
+    public long getReplays() {
+        return replays;
+    }
+
+    /**
+     * SRTP packets dropped because they were older than the replay window.
+     */
+    public long getTooOld() {
+        return tooOld;
+    }
+
+    /**
+     * packets dropped because the payload type wasn't the session's.
+     */
+    public long getPtMismatches() {
+        return ptMismatches;
+    }
+
+    /**
+     * times a packet arrived from an SSRC other than the first one seen -
+     * for SRTP only the first packet from each new SSRC that authenticates counts.
+     */
+    public long getSsrcChanges() {
+        return ssrcChanges;
+    }
+
+    /**
+     * times the inbound rollover counter moved on.
+     */
+    public long getRocIncrements() {
+        return rocIncrements;
+    }
+
+    /**
+     * received packets the cipher refused to decrypt.
+     */
+    public long getDecryptErrors() {
+        return decryptErrors;
+    }
+
+    public long getPacketsOut() {
+        return packetsOut;
+    }
+
+    /**
+     * bytes handed to the socket, headers and auth tag included.
+     */
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * packets the cipher refused to encrypt - these never got sent.
+     */
+    public long getEncryptErrors() {
+        return encryptErrors;
+    }
+
+    /**
+     * all the received packets turned away for one reason or another.
+     */
+    public long getDropped() {
+        return authFailures + replays + tooOld + ptMismatches + decryptErrors;
+    }
+
+    @Override
+    public String toString() {
+        return "in " + packetsIn + "/" + bytesIn + "B out " + packetsOut + "/" + bytesOut + "B"
+                + " authFail " + authFailures + " replay " + replays + " tooOld " + tooOld
+                + " ptMismatch " + ptMismatches + " ssrcChange " + ssrcChanges
+                + " rocInc " + rocIncrements + " decryptErr " + decryptErrors + " encryptErr " + encryptErrors;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+/**
+ * RFC 3711 3.3.2 replay list as a sliding bitmap.
+ *
+ * Covers the size indices up to and including the highest one seen. Bit
+ * (index mod size) of a ring of longs is set once that index has been
+ * accepted, so a check is a compare and a bit test whatever the size, and
+ * moving the window forward only clears the words it slides over.
+ * 64 is the RFC default, use 128 or 1024 for video with a lot of reordering.
+ */
+class ReplayWindow {
+
+    final static int DEFAULT_SIZE = 64;
+
+    private final long[] _bits;
+    private final int _mask; // size - 1
+    private long _top = -1; // highest index accepted, -1 before the first
+
+    ReplayWindow() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param size packets covered - a power of two, at least 64
+     */
+    ReplayWindow(int size) {
+        if ((size < 64) || (Integer.bitCount(size) != 1)) {
+            throw new IllegalArgumentException("replay window must be a power of two >= 64, not " + size);
+        }
+        _bits = new long[size >>> 6];
+        _mask = size - 1;
+    }
+
+    int size() {
+        return _mask + 1;
+    }
+
+    /**
+     * the highest index accepted so far, or -1
+     */
+    long getTop() {
+        return _top;
+    }
+
+    /**
+     * throw if index is a replay or has fallen off the back of the window.
+     * Doesn't change anything - call accept() once the packet authenticates.
+     */
+    void check(long index) throws RTPPacketException {
+        if (index > _top) {
+            return;
+        }
+        if ((_top - index) > _mask) {
+            throw new RTPPacketException(" out of window, packet too old");
+        }
+        int b = (int) index & _mask;
+        if ((_bits[b >>> 6] & (1L << b)) != 0) {
+            throw new RTPPacketException(" Seen that packet before - replay attack ? " + index);
+        }
+    }
+
+    /**
+     * has index fallen off the back of the window.
+     */
+    boolean tooOld(long index) {
+        return (index < _top) && ((_top - index) > _mask);
+    }
+
+    /**
+     * note that index has been seen, moving the window on if it is new.
+     */
+    void accept(long index) {
+        if (index > _top) {
+            long gap = index - _top;
+            if ((_top < 0) || (gap > _mask)) {
+                java.util.Arrays.fill(_bits, 0L);
+            } else {
+                clear((int) (_top + 1) & _mask, (int) gap);
+            }
+            _top = index;
+        } else if ((_top - index) > _mask) {
+            return; // too old to record
+        }
+        int b = (int) index & _mask;
+        _bits[b >>> 6] |= (1L << b);
+    }
+
+    /*
+     clear n bits starting at ring position from - a word at a time where we can.
+     */
+    private void clear(int from, int n) {
+        while (n > 0) {
+            int w = from >>> 6;
+            int lo = from & 63;
+            int run = Math.min(64 - lo, n);
+            long m = (run == 64) ? -1L : (((1L << run) - 1) << lo);
+            _bits[w] &= ~m;
+            n -= run;
+            from = (from + run) & _mask;
+        }
+    }
+
+    /*
+     random reordered, duplicated and jumping streams against a plain set.
+     */
+    public static void main(String[] args) {
+        java.util.Random r = new java.util.Random(3);
+        for (int size : new int[]{64, 128, 1024}) {
+            ReplayWindow w = new ReplayWindow(size);
+            java.util.HashSet<Long> seen = new java.util.HashSet<>();
+            long top = -1;
+            long next = 0;
+            int replays = 0;
+            for (int t = 0; t < 2000000; t++) {
+                long idx;
+                int k = r.nextInt(100);
+                if (k < 2) {
+                    next += r.nextInt(4 * size); // a jump
+                    idx = next;
+                } else if (k < 30) {
+                    idx = Math.max(0, next - r.nextInt(2 * size)); // late or a replay
+                } else {
+                    idx = next++;
+                }
+                boolean ok = (idx > top) || (((top - idx) < size) && !seen.contains(idx));
+                boolean got;
+                try {
+                    w.check(idx);
+                    got = true;
+                } catch (RTPPacketException x) {
+                    got = false;
+                    replays++;
+                }
+                if (got != ok) {
+                    throw new IllegalStateException("size " + size + " index " + idx + " top " + top + " want " + ok);
+                }
+                if (ok) {
+                    w.accept(idx);
+                    seen.add(idx);
+                    top = Math.max(top, idx);
+                }
+            }
+            System.out.println("window " + size + " ok, " + replays + " turned away");
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+/**
+ * Builds an RFC 8285 header extension block for outbound packets, reusing
+ * one array. Extensions that weren't negotiated in the map are left out.
+ * <pre>
+ * w.reset().putTransportSeq(tseq++).putAbsSendTime(ast).applyTo(session);
+ * session.sendPacket(...);
+ * </pre>
+ * For a batch, where every packet needs its own (transport-cc) extension:
+ * <pre>
+ * session.sendBatch(frames, stamp, pt, true, w, (x, i, seq) -> x.putTransportSeq(tseq + i));
+ * </pre>
+ */
+public class RtpExtensionWriter {
+
+    /**
+     * fills in the writer (already reset) for packet i of a batch, seqno is its RTP seqno.
+     */
+    public interface PerPacket {
+
+        void extend(RtpExtensionWriter w, int i, char seqno);
+    }
+
+    private final ExtensionMap _map;
+    private final boolean _twoByte;
+    private final byte[] _buf = new byte[256];
+    private int _len;
+
+    /**
+     * @param twoByte use the two byte form (ids above 14, elements longer than 16 bytes)
+     */
+    public RtpExtensionWriter(ExtensionMap map, boolean twoByte) {
+        _map = map;
+        _twoByte = twoByte;
+    }
+
+    /**
+     * in whichever form the map was negotiated with.
+     */
+    public RtpExtensionWriter(ExtensionMap map) {
+        this(map, map.isTwoByte());
+    }
+
+    public RtpExtensionWriter reset() {
+        _len = 0;
+        return this;
+    }
+
+    private int element(int type, int len) {
+        int id = _map.idOf(type);
+        if (id < 0) {
+            return -1;
+        }
+        if (_len + 2 + len > _buf.length) {
+            throw new IllegalArgumentException("Too much header extension data");
+        }
+        if (_twoByte) {
+            if (len > 255) {
+                throw new IllegalArgumentException("Extension too long " + len);
+            }
+            _buf[_len++] = (byte) id;
+            _buf[_len++] = (byte) len;
+        } else {
+            if ((id > 14) || (len < 1) || (len > 16)) {
+                throw new IllegalArgumentException("Extension " + id + " length " + len + " needs the two byte form");
+            }
+            _buf[_len++] = (byte) ((id << 4) | (len - 1));
+        }
+        int o = _len;
+        _len += len;
+        return o;
+    }
+
+    private RtpExtensionWriter putBE(int type, int v, int n) {
+        int o = element(type, n);
+        if (o >= 0) {
+            for (int i = n - 1; i >= 0; i--) {
+                _buf[o + i] = (byte) v;
+                v >>>= 8;
+            }
+        }
+        return this;
+    }
+
+    public RtpExtensionWriter putAbsSendTime(int v) {
+        return putBE(ExtensionMap.ABS_SEND_TIME, v, 3);
+    }
+
+    public RtpExtensionWriter putTransportSeq(int seq) {
+        return putBE(ExtensionMap.TRANSPORT_CC, seq, 2);
+    }
+
+    public RtpExtensionWriter putAudioLevel(boolean voice, int level) {
+        return putBE(ExtensionMap.AUDIO_LEVEL, (voice ? 0x80 : 0) | (level & 0x7f), 1);
+    }
+
+    public RtpExtensionWriter put(int type, byte[] data) {
+        int o = element(type, data.length);
+        if (o >= 0) {
+            System.arraycopy(data, 0, _buf, o, data.length);
+        }
+        return this;
+    }
+
+    public RtpExtensionWriter putMid(byte[] mid) {
+        return put(ExtensionMap.MID, mid);
+    }
+
+    public RtpExtensionWriter putRid(byte[] rid) {
+        return put(ExtensionMap.RID, rid);
+    }
+
+    public int getProfile() {
+        return _twoByte ? RtpExtensions.TWO_BYTE_PROFILE : RtpExtensions.ONE_BYTE_PROFILE;
+    }
+
+    public byte[] getData() {
+        return _buf;
+    }
+
+    public int getLength() {
+        return _len;
+    }
+
+    /**
+     * make this the session's outbound extension (none if it is empty).
+     */
+    public void applyTo(RTPProtocolImpl session) {
+        if (_len == 0) {
+            session.setOutboundExtension(-1, null, 0);
+        } else {
+            session.setOutboundExtension(getProfile(), _buf, _len);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable decoder for the RFC 8285 header extensions of one packet.
+ * wrap() scans the elements once, noting where the registered ones are,
+ * the typed getters then read straight from the packet without allocating
+ * (except getMid()/getRid() which make Strings - use midMatches() to route).
+ * Only valid until it is wrapped over the next packet.
+ */
+public class RtpExtensions {
+
+    public final static int ONE_BYTE_PROFILE = 0xBEDE;
+    public final static int TWO_BYTE_PROFILE = 0x1000; // low 4 bits are 'appbits'
+
+    private ByteBuffer _buf;
+    private final int[] _offs = new int[ExtensionMap.NTYPES];
+    private final int[] _lens = new int[ExtensionMap.NTYPES];
+
+    /**
+     * reusable - wrap() it round each packet's header.
+     */
+    public RtpExtensions() {
+    }
+
+    /**
+     * find the registered extensions in this header - unknown ids are skipped,
+     * as is anything but a one or two byte extension block.
+     */
+    public RtpExtensions wrap(RtpHeader h, ExtensionMap map) throws RTPPacketException {
+        for (int t = 0; t < _offs.length; t++) {
+            _offs[t] = -1;
+        }
+        _buf = h.getBuffer();
+        int profile = h.getExtensionProfile();
+        boolean oneByte = (profile == ONE_BYTE_PROFILE);
+        if (!oneByte && ((profile & 0xfff0) != TWO_BYTE_PROFILE)) {
+            return this;
+        }
+        int o = h.getExtensionOffset();
+        int end = o + h.getExtensionLength();
+        while (o < end) {
+            int b = _buf.get(o) & 0xff;
+            if (b == 0) {
+                o++; // padding
+                continue;
+            }
+            int id;
+            int len;
+            if (oneByte) {
+                id = b >>> 4;
+                if (id == 15) {
+                    break; // reserved - stop
+                }
+                len = (b & 0x0f) + 1;
+                o += 1;
+            } else {
+                if (o + 1 >= end) {
+                    break;
+                }
+                id = b;
+                len = _buf.get(o + 1) & 0xff;
+                o += 2;
+            }
+            if (o + len > end) {
+                throw new RTPPacketException("Header extension element " + id + " overruns extension block");
+            }
+            int type = map.typeOf(id);
+            if (type != 0) {
+                _offs[type] = o;
+                _lens[type] = len;
+            }
+            o += len;
+        }
+        return this;
+    }
+
+    public boolean has(int type) {
+        return _offs[type] >= 0;
+    }
+
+    /**
+     * buffer index of this extension's data, -1 if absent.
+     */
+    public int getOffset(int type) {
+        return _offs[type];
+    }
+
+    public int getLength(int type) {
+        return (_offs[type] >= 0) ? _lens[type] : 0;
+    }
+
+    private int readBE(int type, int n) {
+        int o = _offs[type];
+        if ((o < 0) || (_lens[type] < n)) {
+            return -1;
+        }
+        int v = 0;
+        for (int i = 0; i < n; i++) {
+            v = (v << 8) | (_buf.get(o + i) & 0xff);
+        }
+        return v;
+    }
+
+    /**
+     * 24 bit 6.18 fixed point seconds, -1 if absent.
+     */
+    public int getAbsSendTime() {
+        return readBE(ExtensionMap.ABS_SEND_TIME, 3);
+    }
+
+    /**
+     * transport wide sequence number, -1 if absent.
+     */
+    public int getTransportSeq() {
+        return readBE(ExtensionMap.TRANSPORT_CC, 2);
+    }
+
+    /**
+     * audio level in -dBov (0-127), -1 if absent.
+     */
+    public int getAudioLevel() {
+        int v = readBE(ExtensionMap.AUDIO_LEVEL, 1);
+        return (v < 0) ? -1 : (v & 0x7f);
+    }
+
+    public boolean isVoiceActive() {
+        return readBE(ExtensionMap.AUDIO_LEVEL, 1) >= 0x80;
+    }
+
+    private boolean matches(int type, byte[] want) {
+        int o = _offs[type];
+        if ((o < 0) || (_lens[type] != want.length)) {
+            return false;
+        }
+        for (int i = 0; i < want.length; i++) {
+            if (_buf.get(o + i) != want[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean midMatches(byte[] mid) {
+        return matches(ExtensionMap.MID, mid);
+    }
+
+    public boolean ridMatches(byte[] rid) {
+        return matches(ExtensionMap.RID, rid);
+    }
+
+    private String string(int type) {
+        int o = _offs[type];
+        if (o < 0) {
+            return null;
+        }
+        byte[] b = new byte[_lens[type]];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = _buf.get(o + i);
+        }
+        return new String(b, StandardCharsets.US_ASCII);
+    }
+
+    public String getMid() {
+        return string(ExtensionMap.MID);
+    }
+
+    public String getRid() {
+        return string(ExtensionMap.RID);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reusable (flyweight) view of the RTP header of a packet in a ByteBuffer.
+ * wrap() it over a packet and the accessors read straight from the buffer
+ * with shifts and masks - nothing is copied or allocated unless you ask for
+ * getCsrcs() or getExtension().
+ * Only valid until it is wrapped over another packet.
+ * <pre>
+ *  0                   1                   2                   3
+ *  0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |V=2|P|X|  CC   |M|     PT      |       sequence number         |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |                           timestamp                           |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |           synchronization source (SSRC) identifier            |
+ * +=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+=+
+ * |            contributing source (CSRC) identifiers             |
+ * |                             ....                              |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |      defined by profile       |           length              |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |                        header extension                       |
+ * |                             ....                              |
+ * </pre>
+ */
+public class RtpHeader {
+
+    // big endian int stores straight into a byte[]
+    private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    public static final int MAXCSRC = 15;
+
+    private ByteBuffer _buf;
+    private int _offs;
+    private int _w0; // first word - V P X CC M PT seq
+    private int _headLen;
+
+    /**
+     * reusable - wrap() it round each packet.
+     */
+    public RtpHeader() {
+    }
+
+    /**
+     * point this header at the packet of len bytes starting at offs.
+     *
+     * @throws RTPPacketException if the packet is too short for the header it claims
+     */
+    public RtpHeader wrap(ByteBuffer buf, int offs, int len) throws RTPPacketException {
+        if (len < RTPProtocolImpl.RTPHEAD) {
+            throw new RTPPacketException("Packet too short. RTP must be >12 bytes");
+        }
+        _buf = buf;
+        _offs = offs;
+        _w0 = buf.getInt(offs);
+        int head = RTPProtocolImpl.RTPHEAD + 4 * ((_w0 >>> 24) & 0x0f);
+        if ((_w0 & 0x10000000) != 0) {
+            if (len < head + 4) {
+                throw new RTPPacketException("Packet too short for extension header");
+            }
+            head += 4 + 4 * (buf.getInt(offs + head) & 0xffff);
+        }
+        if (len < head) {
+            throw new RTPPacketException("Packet too short for header " + head + " but packet only " + len);
+        }
+        _headLen = head;
+        return this;
+    }
+
+    ByteBuffer getBuffer() {
+        return _buf;
+    }
+
+    public int getVersion() {
+        return _w0 >>> 30;
+    }
+
+    public boolean hasPadding() {
+        return (_w0 & 0x20000000) != 0;
+    }
+
+    public boolean hasExtension() {
+        return (_w0 & 0x10000000) != 0;
+    }
+
+    public int getCsrcCount() {
+        return (_w0 >>> 24) & 0x0f;
+    }
+
+    public boolean getMarker() {
+        return (_w0 & 0x00800000) != 0;
+    }
+
+    public int getPayloadType() {
+        return (_w0 >>> 16) & 0x7f;
+    }
+
+    public char getSeqno() {
+        return (char) _w0;
+    }
+
+    public long getTimestamp() {
+        return _buf.getInt(_offs + 4) & 0xffffffffL;
+    }
+
+    public long getSSRC() {
+        return _buf.getInt(_offs + 8) & 0xffffffffL;
+    }
+
+    public long getCsrc(int i) {
+        if ((i < 0) || (i >= getCsrcCount())) {
+            throw new IndexOutOfBoundsException("csrc " + i + " of " + getCsrcCount());
+        }
+        return _buf.getInt(_offs + RTPProtocolImpl.RTPHEAD + 4 * i) & 0xffffffffL;
+    }
+
+    /**
+     * allocates - use getCsrc(i) on the hot path.
+     */
+    public long[] getCsrcs() {
+        long[] ret = new long[getCsrcCount()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = getCsrc(i);
+        }
+        return ret;
+    }
+
+    /**
+     * fixed header + csrcs + extension, ie where the payload starts.
+     */
+    public int getHeaderLength() {
+        return _headLen;
+    }
+
+    private int extStart() {
+        return _offs + RTPProtocolImpl.RTPHEAD + 4 * getCsrcCount();
+    }
+
+    /**
+     * the 16 bit 'defined by profile' field, or -1 if there is no extension.
+     */
+    public int getExtensionProfile() {
+        return hasExtension() ? (_buf.getShort(extStart()) & 0xffff) : -1;
+    }
+
+    /**
+     * buffer index of the extension data (after the profile and length).
+     */
+    public int getExtensionOffset() {
+        return extStart() + 4;
+    }
+
+    /**
+     * length of the extension data in bytes, 0 if none.
+     */
+    public int getExtensionLength() {
+        return hasExtension() ? 4 * (_buf.getShort(extStart() + 2) & 0xffff) : 0;
+    }
+
+    /**
+     * copy of the extension data - allocates, null if there is none.
+     */
+    public byte[] getExtension() {
+        if (!hasExtension()) {
+            return null;
+        }
+        byte[] ret = new byte[getExtensionLength()];
+        int o = getExtensionOffset();
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = _buf.get(o + i);
+        }
+        return ret;
+    }
+
+    /**
+     * the CC field is 4 bits - more would silently corrupt the header.
+     */
+    static void checkCsrcCount(int ncsrc) {
+        if ((ncsrc < 0) || (ncsrc > MAXCSRC)) {
+            throw new IllegalArgumentException("Can't put " + ncsrc + " csrcs in an RTP header, max " + MAXCSRC);
+        }
+    }
+
+    /**
+     * bytes needed for a header with ncsrc csrcs and, if extProfile isn't -1,
+     * an extension of extLen bytes (padded to a word).
+     */
+    public static int headerLength(int ncsrc, int extProfile, int extLen) {
+        checkCsrcCount(ncsrc);
+        int ret = RTPProtocolImpl.RTPHEAD + 4 * ncsrc;
+        if (extProfile >= 0) {
+            ret += 4 + ((extLen + 3) & ~3);
+        }
+        return ret;
+    }
+
+    /**
+     * serialise a header into out at offs with a handful of int stores.
+     *
+     * @param csrcs may be null, at most MAXCSRC of them
+     * @param extProfile 'defined by profile' value (eg 0xBEDE) or -1 for no extension
+     * @param ext extension data - extLen bytes of it are copied and zero padded to a word
+     * @return the offset just after the header - where the payload goes
+     * @throws IllegalArgumentException if there are too many csrcs
+     */
+    public static int write(byte[] out, int offs, boolean marker, int ptype, char seqno, long stamp, long ssrc,
+            long[] csrcs, int extProfile, byte[] ext, int extLen) {
+        int cc = (csrcs == null) ? 0 : csrcs.length;
+        checkCsrcCount(cc);
+        int w0 = (2 << 30) | ((extProfile >= 0) ? 0x10000000 : 0) | (cc << 24)
+                | (marker ? 0x00800000 : 0) | ((ptype & 0x7f) << 16) | seqno;
+        INT_BE.set(out, offs, w0);
+        INT_BE.set(out, offs + 4, (int) stamp);
+        INT_BE.set(out, offs + 8, (int) ssrc);
+        int o = offs + RTPProtocolImpl.RTPHEAD;
+        for (int i = 0; i < cc; i++) {
+            INT_BE.set(out, o, (int) csrcs[i]);
+            o += 4;
+        }
+        if (extProfile >= 0) {
+            int words = (extLen + 3) >>> 2;
+            INT_BE.set(out, o, (extProfile << 16) | words);
+            o += 4;
+            System.arraycopy(ext, 0, out, o, extLen);
+            for (int i = extLen; i < words * 4; i++) {
+                out[o + i] = 0;
+            }
+            o += words * 4;
+        }
+        return o;
+    }
+
+    @Override
+    public String toString() {
+        return "RTP pt=" + getPayloadType() + " seq=" + (int) getSeqno() + " ts=" + getTimestamp()
+                + " ssrc=" + getSSRC() + " m=" + getMarker() + " cc=" + getCsrcCount() + " x=" + hasExtension();
+    }
+}
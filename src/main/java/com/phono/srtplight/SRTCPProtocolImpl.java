@@ -1,7 +1,6 @@
 package com.phono.srtplight;
 
 import static com.phono.srtplight.SRTPProtocolImpl.getHex;
-import static com.phono.srtplight.SRTPProtocolImpl.getPepper;
 import static com.phono.srtplight.SRTPSecContext.saba;
 import java.io.IOException;
 import java.io.StringReader;
@@ -12,7 +11,6 @@ import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Properties;
-import javax.crypto.Mac;
 
 /**
  *
@@ -21,12 +19,12 @@ import javax.crypto.Mac;
 public class SRTCPProtocolImpl {
 
     /**
-     * some ugly assumptions here: AES_CM_128_HMAC_SHA1_80 only
+     * some ugly assumptions here: no MKI
+     * AES_CM_128_HMAC_SHA1_80/32 or AEAD_AES_128/256_GCM (RFC 7714)
      *
      * @param properties
      * @param properties0
      */
-    final static int AUTHLEN = 10;
     final static int CLEARHEAD = 8;
     final static int MIKEY = 0;
     final static int INDEXLEN = 4;
@@ -67,7 +65,9 @@ public class SRTCPProtocolImpl {
         sr.setSSRC(ssrc);
         sr.setSenderOctets(octs);
         sr.setSenderPackets(pkts);
-        Log.verb("RTCP about to build " + sr);
+        if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("RTCP about to build " + sr);
+        }
         outbound(sr);
     }
 
@@ -90,7 +90,9 @@ public class SRTCPProtocolImpl {
     public void sendRR() throws IOException, GeneralSecurityException {
         RTCP.ReceiverReport rr = RTCP.mkReceiverReport();
         rr.setSSRC(1L);
-        Log.verb("RTCP about to build " + rr);
+        if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("RTCP about to build " + rr);
+        }
         outbound(rr);
     }
     private void outbound(RTCP rtcp) throws IOException, GeneralSecurityException {
@@ -98,29 +100,39 @@ public class SRTCPProtocolImpl {
         int fpl = 4 * (ebl + 1) + 4 + this._tailOut;
         ByteBuffer bbo = ByteBuffer.allocate(fpl);
         rtcp.addBody(bbo);
-        Log.verb("RTCP built " + rtcp);
-        Log.verb("packet body "+getHex(bbo.array()));
+        logBody("built", rtcp, bbo);
         
-        encrypt(bbo, out_index, (int) rtcp.ssrc);
-        Log.verb("RTCP encrypted " + rtcp);
-        Log.verb("packet body "+getHex(bbo.array()));
-        bbo.putInt((1 << 31) | (0x7fffffff & out_index));
-        Log.verb("RTCP added index " + rtcp);
-        Log.verb("packet body "+getHex(bbo.array()));
-        appendAuth(bbo);
-        Log.verb("RTCP authed " + rtcp);
-        Log.verb("packet body "+getHex(bbo.array()));
+        if (_scOut.isAead()) {
+            sealAead(bbo, out_index, (int) rtcp.ssrc);
+            logBody("sealed", rtcp, bbo);
+        } else {
+            encrypt(bbo, out_index, (int) rtcp.ssrc);
+            logBody("encrypted", rtcp, bbo);
+            bbo.putInt((1 << 31) | (0x7fffffff & out_index));
+            logBody("added index", rtcp, bbo);
+            appendAuth(bbo);
+            logBody("authed", rtcp, bbo);
+        }
         byte[] out = bbo.array();
         sendToNetwork(out);
-        Log.debug("RTCP sent " + rtcp);
+        if (Log.getLevel() >= Log.DEBUG) {
+            Log.debug("RTCP sent " + rtcp);
+        }
         out_index++;
     }
+    private static void logBody(String what, RTCP rtcp, ByteBuffer bbo) {
+        if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("RTCP " + what + " " + rtcp);
+            Log.verb("packet body " + getHex(bbo.array()));
+        }
+    }
+
     protected void sendToNetwork(byte[] pay) throws IOException{
         DatagramPacket p = new DatagramPacket(pay, 0, pay.length);
         if (outDs != null) {
             this.outDs.send(p);
-        } else {
-            Log.verb("RTCP Dummy. Wanted to send this " + getHex(p.getData()));
+        } else if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("RTCP Dummy. Wanted to send this " + getHex(pay));
         }
         //Log.verb("RTCP sent " + rtcp);
 
@@ -167,40 +179,23 @@ public class SRTCPProtocolImpl {
             _scIn.deriveKeys(0);
 
             if (_doAuth) {
-                Mac hmac = _scIn.getAuthMac();
-
                 int alen = _tailIn;
-                int offs = plen - alen;
-                ByteBuffer m = ByteBuffer.allocate(offs);
-                m.put(packet, 0, offs);
-
-                byte[] auth = new byte[alen];
-                System.arraycopy(packet, offs, auth, 0, alen);
                 int mlen = plen - alen;
-                Log.verb("mess length =" + mlen);
-                if (Log.getLevel() > Log.DEBUG) {
-                    Log.verb("auth body " + getHex(m.array()));
-                }
-                ((Buffer)m).position(0);
-                hmac.update(m);
-                byte[] mac = hmac.doFinal();
-
-                if (Log.getLevel() > Log.DEBUG) {
-                    Log.verb("auth in   " + getHex(auth));
-                }
+                ByteBuffer pkt = ByteBuffer.wrap(packet);
+                byte[] mac = _scIn.getAuthTag(pkt, 0, mlen);
                 if (Log.getLevel() > Log.DEBUG) {
+                    Log.verb("mess length =" + mlen);
                     Log.verb("auth out  " + getHex(mac, alen));
                 }
-
-                for (int i = 0; i < alen; i++) {
-                    if (auth[i] != mac[i]) {
-                        throw new RTPPacketException("not authorized byte " + i + " does not match ");
-                    }
+                if (!SRTPSecContext.tagMatches(mac, pkt, mlen, alen)) {
+                    throw new RTPPacketException("not authorized - tag does not match ");
                 }
                 Log.verb("RTCP auth ok");
             }
         } catch (GeneralSecurityException ex) {
-            Log.debug("RTCP auth check failed " + ex.getMessage());
+            if (Log.getLevel() >= Log.DEBUG) {
+                Log.debug("RTCP auth check failed " + ex.getMessage());
+            }
             throw new RTPPacketException("Problem checking  packet " + ex.getMessage());
 
         }
@@ -215,17 +210,13 @@ public class SRTCPProtocolImpl {
         // strictly we might need to derive the keys here too -
         // since we might be doing auth but no crypt.
         // we don't support that so nach.
-        Mac mac = _scOut.getAuthMac();
         Buffer bm = (Buffer) m;
         int top = bm.limit();
-        bm.position(0);
         int authLoc = top - _tailOut;
-        bm.limit(authLoc);
-        mac.update(m);
-        byte[] auth = mac.doFinal();
-        bm.limit(top);
-        bm.position(authLoc);
-        m.put(auth,0,_tailOut);
+        byte[] auth = _scOut.getAuthTag(m, 0, authLoc);
+        for (int i = 0; i < _tailOut; i++) {
+            m.put(authLoc + i, auth[i]);
+        }
         bm.position(0);
         if (Log.getLevel() > Log.DEBUG) {
             Log.verb("Authed packet " + getHex(m.array()));
@@ -237,7 +228,9 @@ public class SRTCPProtocolImpl {
         int len = pkt.getLength();
         byte[] data = new byte[len];
         System.arraycopy(pkt.getData(), 0, data, 0, len);
-        Log.verb("RTCP packet " + SRTPProtocolImpl.getHex(data));
+        if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("RTCP packet " + SRTPProtocolImpl.getHex(data));
+        }
         ByteBuffer bb = ByteBuffer.wrap(data);
         char fh = bb.getChar();
         int v = (fh & ((char) (0xc000))) >>> 14;
@@ -256,33 +249,59 @@ public class SRTCPProtocolImpl {
    | :                     authentication tag                        : |
    | +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+ |
          */
-        int tail_len = AUTHLEN + MIKEY + INDEXLEN;
-        int tail_offset = len - tail_len;
-        byte[] authtag = new byte[AUTHLEN];
+        int tail_len = _tailIn + MIKEY + INDEXLEN;
+        boolean aead = _scIn.isAead();
+        // RFC 7714 moves the tag into the encrypted portion, ahead of the index
+        int index_offset = aead ? (len - MIKEY - INDEXLEN) : (len - tail_len);
+        int tag_offset = aead ? (index_offset - _tailIn) : (index_offset + INDEXLEN + MIKEY);
+        byte[] authtag = new byte[_tailIn];
         byte[] mikey = new byte[MIKEY];
         Buffer bbb = (Buffer) bb;
-        bbb.position(tail_offset);
+        bbb.position(index_offset);
         long index = bb.getInt();
         boolean encryption = (index < 0);
         index = (0x7fffffff & index);
         if (MIKEY > 0) {
             bb.get(mikey);
         }
+        bbb.position(tag_offset);
         bb.get(authtag);
-        Log.verb("Tail =" + tail_len + " index=" + index + " mkti=" + getHex(mikey) + " authtag=" + getHex(authtag) + " encryption=" + encryption);
+        if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("Tail =" + tail_len + " index=" + index + " mkti=" + getHex(mikey) + " authtag=" + getHex(authtag) + " encryption=" + encryption);
+        }
         bbb.position(0);
 
         if (encryption) {
             _scIn.deriveKeys(index); // or perhaps zero ?
-            this.checkAuth(data, len);
-             
-            bbb.position(0);
-            decrypt(bb, len, tail_len, ssrc, index);
+            if (aead) {
+                // AAD is the first 8 bytes and the E||index word
+                try {
+                    _scIn.aeadCrypt(false, bb, CLEARHEAD, index_offset - CLEARHEAD, 0, CLEARHEAD,
+                            index_offset, INDEXLEN, ssrc, index);
+                } catch (GeneralSecurityException ex) {
+                    SRTPEvents.authFailure(true, ssrc, index, ex.getMessage());
+                    throw ex;
+                }
+            } else {
+                try {
+                    this.checkAuth(data, len);
+                } catch (RTPPacketException ex) {
+                    SRTPEvents.authFailure(true, ssrc, index, ex.getMessage());
+                    throw ex;
+                }
+
+                bbb.position(0);
+                decrypt(bb, len, tail_len, ssrc, index);
+            }
             bbb.position(0);
             while (bb.remaining() >= CLEARHEAD + tail_len) {
-                Log.verb("RTCP packet starts at " + bbb.position());
+                if (Log.getLevel() > Log.DEBUG) {
+                    Log.verb("RTCP packet starts at " + bbb.position());
+                }
                 RTCP rtcp = RTCP.mkRTCP(bb);
-                Log.verb("RTCP packet was: " + rtcp.toString());
+                if (Log.getLevel() > Log.DEBUG) {
+                    Log.verb("RTCP packet was: " + rtcp.toString());
+                }
                 rtcps.add(rtcp);
             }
         }
@@ -298,20 +317,10 @@ public class SRTCPProtocolImpl {
 
     void decrypt(ByteBuffer pkt, int len, int tail_len, int ssrc, long index) throws GeneralSecurityException {
         int plen = len - tail_len - CLEARHEAD;
-        byte[] payload = new byte[plen];
-        Log.verb("pkt remains " + pkt.remaining() + " offset " + CLEARHEAD + " plen " + plen);
-        for (int i = 0; i < plen; i++) {
-            payload[i] = pkt.get(i + CLEARHEAD);
-        }
-        ByteBuffer in = ByteBuffer.wrap(payload);
-        // aes likes the buffer a multiple of 32 and longer than the input.
-        int pl = (((payload.length / 32) + 2) * 32);
-        ByteBuffer out = ByteBuffer.allocate(pl);
-        ByteBuffer pepper = getPepper(ssrc, index);
-        _scIn.decipher(in, out, pepper);
-        for (int i = 0; i < payload.length; i++) {
-            pkt.put(i + CLEARHEAD, out.get(i));
+        if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("pkt remains " + pkt.remaining() + " offset " + CLEARHEAD + " plen " + plen);
         }
+        _scIn.decipher(pkt, CLEARHEAD, plen, ssrc, index);
     }
 
     public static void main(String[] args) {
@@ -356,22 +365,26 @@ public class SRTCPProtocolImpl {
         outDs = ds;
     }
 
+    /*
+     RFC 7714 section 9 - header || ciphertext || tag || E||index
+     the index word goes in first since it is part of the AAD.
+     leaves the position at the end of the packet.
+     */
+    private void sealAead(ByteBuffer bbo, long idx, int ssrc) throws GeneralSecurityException {
+        _scOut.deriveKeys(idx);
+        Buffer bbbo = (Buffer) bbo;
+        int pos = bbbo.position();
+        int indexLoc = pos + _tailOut;
+        bbo.putInt(indexLoc, (1 << 31) | (0x7fffffff & (int) idx));
+        _scOut.aeadCrypt(true, bbo, CLEARHEAD, pos - CLEARHEAD, 0, CLEARHEAD, indexLoc, INDEXLEN, ssrc, idx);
+        bbbo.position(indexLoc + INDEXLEN);
+    }
+
     private void encrypt(ByteBuffer bbo, long idx, int ssrc) throws GeneralSecurityException {
         _scOut.deriveKeys(idx);
         Buffer bbbo = (Buffer) bbo;
         int pos = bbbo.position();
-        int paylen = pos - CLEARHEAD;
-        int pl = (((paylen / 32) + 2) * 32);
-        byte[] bin = new byte[paylen];
-        bbbo.position(CLEARHEAD);
-        bbo.get(bin, 0, paylen);
-        ByteBuffer in = ByteBuffer.wrap(bin);
-        ByteBuffer out = ByteBuffer.allocate(pl);
-        ByteBuffer pepper = getPepper(ssrc, idx);
-        _scOut.decipher(in, out, pepper);
-        bbbo.position(CLEARHEAD);
-        bbo.put(out.array(),0,paylen);
-        bbbo.position(pos);
+        _scOut.decipher(bbo, CLEARHEAD, pos - CLEARHEAD, ssrc, idx);
     }
 
 
@@ -13,7 +13,10 @@ import java.security.GeneralSecurityException;
  */
 class SRTCPSecContext extends SRTPSecContext {
 
+    final static int SRTCPTAGLEN = 10;
+
     public SRTCPSecContext(boolean b) {
+        super(b);
     }
 
     /*
@@ -34,4 +37,13 @@ class SRTCPSecContext extends SRTPSecContext {
         deriveKeys(index, kdr, 3, 5, 4);
     }
 
+    /*
+     RFC 4568 (and libsrtp) - SRTCP keeps the 80 bit tag even for the
+     _32 suites, only GCM uses its own.
+     */
+    @Override
+    public int getAuthTail() {
+        return isAead() ? super.getAuthTail() : SRTCPTAGLEN;
+    }
+
 }
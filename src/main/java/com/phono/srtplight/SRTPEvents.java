@@ -0,0 +1,281 @@
+/*
+ * Copyright 2026 |pipe|
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phono.srtplight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder events for the things you'd otherwise need VERB
+ * logging to see - auth failures, replays, roc rollovers, new SSRCs, key
+ * derivation and gaps in the receive loop.
+ * <pre>
+ * java -XX:StartFlightRecording:filename=rec.jfr ...
+ * jfr print --categories srtplight rec.jfr
+ * </pre>
+ * Callers only ever touch the static methods here. If the runtime has no
+ * jdk.jfr module ON is false and they do nothing, nor do they before the
+ * recorder has been started. After that an event nobody is recording is
+ * never filled in and the JIT throws the allocation away.
+ */
+final class SRTPEvents {
+
+    final static boolean ON = available();
+
+    private SRTPEvents() {
+    }
+
+    private static boolean available() {
+        try {
+            Class.forName("jdk.jfr.Event", false, SRTPEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError x) {
+            return false;
+        }
+    }
+
+    static void authFailure(boolean rtcp, long ssrc, long index, String why) {
+        if (ON && Jfr.recording()) {
+            Jfr.authFailure(rtcp, ssrc, index, why);
+        }
+    }
+
+    static void replay(long ssrc, long index, long top, boolean tooOld) {
+        if (ON && Jfr.recording()) {
+            Jfr.replay(ssrc, index, top, tooOld);
+        }
+    }
+
+    static void rocRollover(boolean outbound, long ssrc, long roc) {
+        if (ON && Jfr.recording()) {
+            Jfr.rocRollover(outbound, ssrc, roc);
+        }
+    }
+
+    static void ssrcChanged(long from, long to, int streams) {
+        if (ON && Jfr.recording()) {
+            Jfr.ssrcChanged(from, to, streams);
+        }
+    }
+
+    static void keyDerivation(boolean rtcp, boolean inbound, long index, int kdr, boolean changed, long took) {
+        if (ON && Jfr.recording()) {
+            Jfr.keyDerivation(rtcp, inbound, index, kdr, changed, took);
+        }
+    }
+
+    /**
+     * a packet has just arrived - returns the new last arrival time, or 0
+     * if nobody is recording stalls.
+     */
+    static long received(String session, long last, long threshold) {
+        if (ON && Jfr.recording()) {
+            return Jfr.received(session, last, threshold);
+        }
+        return 0;
+    }
+
+    /*
+     everything that names a jdk.jfr class lives in here, so SRTPEvents
+     loads fine without it.
+     */
+    private static final class Jfr {
+
+        /*
+         the first touch of an event class costs JFR a few hundred ms of
+         setting up, which we don't want landing on a packet - so leave them
+         alone until something has started the recorder.
+         */
+        static boolean recording() {
+            return FlightRecorder.isInitialized();
+        }
+
+        static void authFailure(boolean rtcp, long ssrc, long index, String why) {
+            AuthFailure e = new AuthFailure();
+            if (e.isEnabled()) {
+                e.rtcp = rtcp;
+                e.ssrc = ssrc & 0xffffffffL;
+                e.index = index;
+                e.reason = why;
+                e.commit();
+            }
+        }
+
+        static void replay(long ssrc, long index, long top, boolean tooOld) {
+            ReplayRejected e = new ReplayRejected();
+            if (e.isEnabled()) {
+                e.ssrc = ssrc & 0xffffffffL;
+                e.index = index;
+                e.top = top;
+                e.tooOld = tooOld;
+                e.commit();
+            }
+        }
+
+        static void rocRollover(boolean outbound, long ssrc, long roc) {
+            RocRollover e = new RocRollover();
+            if (e.isEnabled()) {
+                e.outbound = outbound;
+                e.ssrc = ssrc & 0xffffffffL;
+                e.roc = roc;
+                e.commit();
+            }
+        }
+
+        static void ssrcChanged(long from, long to, int streams) {
+            SsrcChanged e = new SsrcChanged();
+            if (e.isEnabled()) {
+                e.from = (from == -1) ? -1 : (from & 0xffffffffL);
+                e.to = to & 0xffffffffL;
+                e.streams = streams;
+                e.commit();
+            }
+        }
+
+        static void keyDerivation(boolean rtcp, boolean inbound, long index, int kdr, boolean changed, long took) {
+            KeyDerivation e = new KeyDerivation();
+            if (e.isEnabled()) {
+                e.rtcp = rtcp;
+                e.inbound = inbound;
+                e.index = index;
+                e.kdr = kdr;
+                e.changed = changed;
+                e.took = took;
+                e.commit();
+            }
+        }
+
+        static long received(String session, long last, long threshold) {
+            ReceiveStall e = new ReceiveStall();
+            if (!e.isEnabled()) {
+                return 0; // so turning it on later doesn't see one huge gap
+            }
+            long now = System.nanoTime();
+            if ((last != 0) && (now - last > threshold)) {
+                e.session = session;
+                e.gap = now - last;
+                e.commit();
+            }
+            return now;
+        }
+    }
+
+    @Name("com.phono.srtplight.AuthFailure")
+    @Label("SRTP Auth Failure")
+    @Category({"srtplight", "SRTP"})
+    @Description("Packet dropped because its authentication tag didn't match")
+    @StackTrace(false)
+    static class AuthFailure extends Event {
+
+        @Label("RTCP")
+        boolean rtcp;
+        @Label("SSRC")
+        long ssrc;
+        @Label("Index")
+        long index;
+        @Label("Reason")
+        String reason;
+    }
+
+    @Name("com.phono.srtplight.ReplayRejected")
+    @Label("SRTP Replay Rejected")
+    @Category({"srtplight", "SRTP"})
+    @Description("Packet dropped by the replay list - seen before, or older than the window")
+    @StackTrace(false)
+    static class ReplayRejected extends Event {
+
+        @Label("SSRC")
+        long ssrc;
+        @Label("Index")
+        long index;
+        @Label("Highest Index")
+        long top;
+        @Label("Too Old")
+        boolean tooOld;
+    }
+
+    @Name("com.phono.srtplight.RocRollover")
+    @Label("SRTP ROC Rollover")
+    @Category({"srtplight", "SRTP"})
+    @Description("Sequence number wrapped and the rollover counter moved on")
+    @StackTrace(false)
+    static class RocRollover extends Event {
+
+        @Label("Outbound")
+        boolean outbound;
+        @Label("SSRC")
+        long ssrc;
+        @Label("ROC")
+        long roc;
+    }
+
+    @Name("com.phono.srtplight.SsrcChanged")
+    @Label("SRTP New SSRC")
+    @Category({"srtplight", "SRTP"})
+    @Description("First packet from an SSRC this session hasn't got a stream for")
+    @StackTrace(false)
+    static class SsrcChanged extends Event {
+
+        @Label("Previous SSRC")
+        long from;
+        @Label("SSRC")
+        long to;
+        @Label("Streams")
+        int streams;
+    }
+
+    @Name("com.phono.srtplight.KeyDerivation")
+    @Label("SRTP Key Derivation")
+    @Category({"srtplight", "SRTP"})
+    @StackTrace(false)
+    static class KeyDerivation extends Event {
+
+        @Label("RTCP")
+        boolean rtcp;
+        @Label("Inbound")
+        boolean inbound;
+        @Label("Index")
+        long index;
+        @Label("Key Derivation Rate")
+        int kdr;
+        @Label("Keys Changed")
+        boolean changed;
+        @Label("Time Taken")
+        @Timespan(Timespan.NANOSECONDS)
+        long took;
+    }
+
+    @Name("com.phono.srtplight.ReceiveStall")
+    @Label("RTP Receive Stall")
+    @Category({"srtplight", "RTP"})
+    @Description("Longer than the session's stall threshold between two received packets")
+    @StackTrace(false)
+    static class ReceiveStall extends Event {
+
+        @Label("Session")
+        String session;
+        @Label("Gap")
+        @Timespan(Timespan.NANOSECONDS)
+        long gap;
+    }
+}
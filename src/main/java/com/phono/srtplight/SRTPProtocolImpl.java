@@ -18,25 +18,24 @@ package com.phono.srtplight;
  */
 import java.io.*;
 import java.io.IOException;
+import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
+import java.util.Arrays;
 import java.util.Properties;
-import javax.crypto.Mac;
 
 /**
  * see http://www.faqs.org/rfcs/rfc3711.html
  */
 public class SRTPProtocolImpl extends RTPProtocolImpl {
 
-    final static int SRTPWINDOWSIZE = 64;
-
     ;
-    long[] _replay = new long[SRTPWINDOWSIZE];
-    long _windowLeadingEdge = 0;
+    int _windowSize = ReplayWindow.DEFAULT_SIZE;
+    ReplayWindow _replay = new ReplayWindow(_windowSize);
 
     ;
     private SRTPSecContext _scIn;
@@ -62,9 +61,30 @@ public class SRTPProtocolImpl extends RTPProtocolImpl {
             ex.printStackTrace();
         }
     }
-    // we are _trusting_  the kernel to only send us the 'correct' packets, no others.
-    // we check of course, but we depend on it to route the packets, so there is no
-    // need to have a separate list of crypto contexts as envisaged in the RFC
+    // we are _trusting_  the kernel (or RTPDemux) to only send us the 'correct' packets, no others.
+    // but simulcast/RTX put several SSRCs on the one 5-tuple, so the per stream part
+    // of the crypto context (roc, s_l, replay list) is kept per SSRC as in RFC 3711 3.2.3
+    // the keys themselves are shared.
+    final static int MAXSTREAMS = 64;
+
+    static class StreamState {
+
+        int ssrc;
+        long roc;
+        char s_l;
+        long index;
+        ReplayWindow replay;
+        boolean committed; // in _streams - only once a packet has authenticated
+
+        StreamState(int ssrc, int windowSize) {
+            this.ssrc = ssrc;
+            replay = new ReplayWindow(windowSize);
+        }
+    }
+    private final IntMap<StreamState> _streams = new IntMap<>();
+    private StreamState _stream;
+    private StreamState _fallback; // where to go back to if a new SSRC's first packet doesn't authenticate
+    private StreamState _spare; // untouched stream for trying out new SSRCs, kept while they keep failing
 
     public SRTPProtocolImpl(int id, DatagramSocket ds, InetSocketAddress far, int type, Properties lcryptoProps, Properties rcryptoProps) {
         super(id, ds, far, type);
@@ -158,82 +178,190 @@ public class SRTPProtocolImpl extends RTPProtocolImpl {
     the packet.
 
      */
+    /*
+     switch the inbound state over to this SSRC's - no allocation unless it is new.
+     A new one is only tried out until its first packet authenticates.
+     */
+    @Override
+    protected void syncChanged(long sync) throws RTPPacketException {
+        int ssrc = (int) sync;
+        rejected(); // in case the last new SSRC was never settled either way
+        StreamState next = _streams.get(ssrc);
+        if (next == null) {
+            if (_streams.size() >= MAXSTREAMS) {
+                throw new RTPPacketException("Too many SSRCs, not adding " + (sync & 0xffffffffL));
+            }
+            // nothing is counted or kept until it authenticates, so a flood
+            // of made up SSRCs just keeps reusing the one spare
+            next = _spare;
+            if ((next == null) || (next.replay.size() != _windowSize)) {
+                next = new StreamState(ssrc, _windowSize);
+                _spare = next;
+            }
+            next.ssrc = ssrc;
+            _fallback = _stream;
+        }
+        switchTo(next);
+        if (Log.getLevel() >= Log.DEBUG) {
+            Log.debug("SRTP stream now ssrc " + (sync & 0xffffffffL) + " of " + _streams.size());
+        }
+    }
+
+    private void switchTo(StreamState next) {
+        if (_stream != null) {
+            _stream.roc = _roc;
+            _stream.s_l = _s_l;
+            _stream.index = _index;
+            _stream.replay = _replay;
+        }
+        _stream = next;
+        _sync = next.ssrc;
+        _roc = next.roc;
+        _s_l = next.s_l;
+        _index = next.index;
+        _replay = next.replay;
+    }
+
+    /*
+     packet for the current SSRC authenticated, so remember its state from now on.
+     */
+    private void commitStream() {
+        if ((_stream != null) && !_stream.committed) {
+            if (_streams.size() > 0) {
+                _stats.ssrcChanges++;
+            }
+            SRTPEvents.ssrcChanged((_fallback == null) ? -1 : _fallback.ssrc, _stream.ssrc, _streams.size());
+            _streams.put(_stream.ssrc, _stream);
+            _stream.committed = true;
+            _fallback = null;
+            _spare = null;
+        }
+    }
+
+    /*
+     a packet from an SSRC we were trying out failed - forget the new stream
+     and carry on with the one we had, as if it never arrived.
+     */
+    @Override
+    void rejected() {
+        if ((_stream != null) && !_stream.committed) {
+            _stream = null; // nothing of it worth saving
+            if (_fallback != null) {
+                switchTo(_fallback);
+            } else {
+                _sync = -1;
+            }
+            _fallback = null;
+        }
+    }
+
     void checkForReplay() throws RTPPacketException {
         // index is set by now...
-        if (_index < _windowLeadingEdge) {
-            // old packet....
-            if ((_windowLeadingEdge - _index) > SRTPWINDOWSIZE) {
-                throw new RTPPacketException(" out of window, packet too old");
+        checkForReplay(_index);
+    }
+
+    @Override
+    void checkForReplay(long index) throws RTPPacketException {
+        try {
+            _replay.check(index);
+        } catch (RTPPacketException x) {
+            if (_trial) {
+                throw x;
             }
-            // in window but .... is it a replay ?
-            int tidx = (int) (_index % SRTPWINDOWSIZE);
-            if (_replay[tidx] == _index) {
-                throw new RTPPacketException(" Seen that packet before - replay attack ? " + _index);
+            boolean old = _replay.tooOld(index);
+            if (old) {
+                _stats.tooOld++;
+            } else {
+                _stats.replays++;
             }
+            SRTPEvents.replay(_sync, index, _replay.getTop(), old);
+            throw x;
         }
     }
 
+    /**
+     * how many packets back the replay list reaches, 64 by default - video with
+     * a lot of reordering may want 128 or 1024. Resets the replay lists, so
+     * set it before packets arrive.
+     *
+     * @param size a power of two, at least 64
+     */
+    public void setReplayWindowSize(int size) {
+        _replay = new ReplayWindow(size);
+        _windowSize = size;
+        _streams.forEach((k, v) -> v.replay = new ReplayWindow(size));
+        if (_stream != null) {
+            _stream.replay = _replay;
+        }
+    }
+
+    public int getReplayWindowSize() {
+        return _windowSize;
+    }
+
     @Override
-    void checkAuth(byte[] packet, int plen) throws RTPPacketException {
+    void checkAuth(byte[] packet, int plen, long index) throws RTPPacketException {
         if (Log.getLevel() > Log.DEBUG) {
 
             Log.verb("auth on packet " + getHex(packet, plen));
-            Log.verb("Packet index " + Long.toHexString(_index));
+            Log.verb("Packet index " + Long.toHexString(index));
 
         }
         try {
             _scIn.deriveKeys(0);
 
-            if (_doAuth) {
-                Mac hmac = _scIn.getAuthMac();
-
-                int alen = _tailIn;
-                int offs = plen - alen;
-                ByteBuffer m = ByteBuffer.allocate(offs + 4);
-                m.put(packet, 0, offs);
-                m.putInt((int) _roc);
-
-                byte[] auth = new byte[alen];
-                System.arraycopy(packet, offs, auth, 0, alen);
-                int mlen = (plen - RTPHEAD) - alen;
-                Log.verb("mess length =" + mlen);
-                if (Log.getLevel() > Log.DEBUG) {
-                    Log.verb("auth body " + getHex(m.array()));
-                }
-                ((Buffer)m).position(0);
-                hmac.update(m);
-                byte[] mac = hmac.doFinal();
-
-                if (Log.getLevel() > Log.DEBUG) {
-                    Log.verb("auth in   " + getHex(auth));
-                }
-                if (Log.getLevel() > Log.DEBUG) {
-                    Log.verb("auth out  " + getHex(mac, 10));
-                }
-
-                for (int i = 0; i < alen; i++) {
-                    if (auth[i] != mac[i]) {
-                        throw new RTPPacketException("not authorized byte " + i + " does not match ");
-                    }
-                }
+            if (_scIn.isAead()) {
+                // GCM checks the tag as it decrypts - so this leaves the
+                // packet in the clear, ready for parsePacket to copy the payload out.
+                ByteBuffer pkt = ByteBuffer.wrap(packet);
+                int head = getHeaderLength(pkt, 0, plen);
+                _scIn.aeadCrypt(false, pkt, head, plen - head, 0, head, 0, 0, getInt(pkt, 8), index);
+            } else if (_doAuth) {
+                checkAuth(ByteBuffer.wrap(packet), 0, plen, index);
             }
+            commitStream();
         } catch (GeneralSecurityException ex) {
-
+            authFailed(index, ex.getMessage());
             throw new RTPPacketException("Problem checking  packet " + ex.getMessage());
 
         }
     }
 
+    /*
+     check the tag at the end of the len bytes at offs - in place, no copies.
+     */
+    private void checkAuth(ByteBuffer pkt, int offs, int len, long index) throws GeneralSecurityException, RTPPacketException {
+        int alen = _tailIn;
+        int mlen = len - alen;
+        byte[] mac = _scIn.getAuthTag(pkt, offs, mlen, (int) (index >>> 16));
+        if (Log.getLevel() > Log.DEBUG) {
+            Log.verb("mess length =" + mlen);
+            Log.verb("auth out  " + getHex(mac, alen));
+        }
+        if (!SRTPSecContext.tagMatches(mac, pkt, offs + mlen, alen)) {
+            authFailed(index, "tag does not match");
+            throw new RTPPacketException("not authorized - tag does not match ");
+        }
+    }
+
+    private void authFailed(long index, String why) {
+        if (_trial) {
+            return;
+        }
+        _stats.authFailures++;
+        SRTPEvents.authFailure(false, _sync, index, why);
+    }
+
     @Override
-    protected void deliverPayload(
-            byte[] payload, long stamp, int ssrc, char seqno) {
+    void decryptIn(byte[] payload, int ssrc) throws RTPPacketException {
+        if (!_doCrypt) {
+            return;
+        }
         try {
-            if (_doCrypt) {
-                decrypt(payload, ssrc);
-            }
-            super.deliverPayload(payload, stamp, ssrc, seqno);
+            decrypt(payload, ssrc);
         } catch (GeneralSecurityException ex) {
-            Log.error("problem with decryption " + ex.getMessage());
+            _stats.decryptErrors++;
+            throw new RTPPacketException("problem with decryption " + ex.getMessage());
         }
     }
 
@@ -241,12 +369,7 @@ public class SRTPProtocolImpl extends RTPProtocolImpl {
     void updateCounters(
             char seqno) {
         // note that we have seen it.
-        int tidx = (int) (_index % SRTPWINDOWSIZE);
-        _replay[tidx] = _index;
-        // and update the leading edge if needed.
-        if (_index > _windowLeadingEdge) {
-            _windowLeadingEdge = _index;
-        }
+        _replay.accept(_index);
         super.updateCounters(seqno);
     }
 
@@ -255,34 +378,25 @@ public class SRTPProtocolImpl extends RTPProtocolImpl {
      * calculate the outbound auth and put it at the end of the packet starting
      * at length - _tail space is already allocated.
      */
-    void appendAuth(byte[] packet) throws RTPPacketException {
+    void appendAuth(byte[] packet, long index) throws RTPPacketException {
 
-        if (_doAuth) {
+        if (_scOut.isAead()) {
+            // the payload is still in the clear at this point, GCM encrypts and tags in one go.
+            try {
+                ByteBuffer pkt = ByteBuffer.wrap(packet);
+                int len = packet.length - _tailOut;
+                int head = getHeaderLength(pkt, 0, len);
+                _scOut.aeadCrypt(true, pkt, head, len - head, 0, head, 0, 0, (int) _csrcid, index);
+            } catch (GeneralSecurityException ex) {
+                throw new RTPPacketException("Problem sending  packet " + ex.getMessage());
+            }
+        } else if (_doAuth) {
             try {
-                // strictly we might need to derive the keys here too -
-                // since we might be doing auth but no crypt.
-                // we don't support that so nach.
-                Mac mac = _scOut.getAuthMac();
-                int offs = packet.length - _tailOut;
-                ByteBuffer m = ByteBuffer.allocate(offs + 4);
-                m.put(packet, 0, offs);
-                int oroc = (int) (_seqno >>> 16);
-                if ((_seqno & 0xffff) == 0) {
+                int oroc = (int) (index >>> 16);
+                if (((index & 0xffff) == 0) && (Log.getLevel() >= Log.DEBUG)) {
                     Log.debug("seqno = 0 outgoing roc =" + oroc);
                 }
-                m.putInt(oroc);
-                if (Log.getLevel() > Log.DEBUG) {
-                    Log.verb("auth body " + getHex(m.array()));
-                }
-                ((Buffer)m).position(0);
-
-                mac.update(m);
-                byte[] auth = mac.doFinal();
-                int len = _tailOut;
-
-                for (int i = 0; i < len; i++) {
-                    packet[offs + i] = auth[i];
-                }
+                appendAuth(ByteBuffer.wrap(packet), 0, packet.length - _tailOut, oroc);
             } catch (GeneralSecurityException ex) {
                 throw new RTPPacketException("Problem sending  packet " + ex.getMessage());
             }
@@ -292,23 +406,38 @@ public class SRTPProtocolImpl extends RTPProtocolImpl {
         }
     }
 
+    /*
+     write the tag for the len bytes at offs into the _tailOut bytes that follow them.
+     */
+    private void appendAuth(ByteBuffer pkt, int offs, int len, int roc) throws GeneralSecurityException {
+        // strictly we might need to derive the keys here too -
+        // since we might be doing auth but no crypt.
+        // we don't support that so nach.
+        byte[] auth = _scOut.getAuthTag(pkt, offs, len, roc);
+        for (int i = 0; i < _tailOut; i++) {
+            pkt.put(offs + len + i, auth[i]);
+        }
+    }
+
     Character oseq = null;
     int roc = 0;
     static final int wrapdiff = 2 << 14;
 
     /**
-     * warning assumes payload is correctly encrypted - which is specious
+     * warning assumes payload is correctly encrypted - which is specious.
+     * For the AEAD suites data must be the sealed payload with its tag on
+     * the end, as it is sent as is. Otherwise the tag is added here.
      *
      * @param data
      * @param stamp
-     * @param seqno
+     * @param seqno index - seqno with the roc above it
      * @param ptype
      * @param marker
      * @throws SocketException
      * @throws IOException
      */
     public void reSendEncryptedPacket(byte[] data, long stamp, long seqno, int ptype, boolean marker) throws SocketException, IOException {
-        super.sendPacket(data, stamp, (char)seqno, ptype, marker);
+        super.sendPacket(data, stamp, seqno, ptype, marker, !_scOut.isAead());
     }
 /**
  * do this without changing _any_ state.
@@ -325,8 +454,9 @@ public class SRTPProtocolImpl extends RTPProtocolImpl {
             try {
                 _scOut.deriveKeys(seq);
                 encrypt(data, (int) _csrcid, seq);
-                super.sendPacket(data, stamp, (char) seq, ptype, marker);
+                super.sendPacket(data, stamp, seq, ptype, marker, true);
             } catch (GeneralSecurityException ex) {
+                _stats.encryptErrors++;
                 Log.error("problem encrypting packet" + ex.getMessage());
                 ex.printStackTrace();
             }
@@ -339,6 +469,42 @@ public class SRTPProtocolImpl extends RTPProtocolImpl {
     which requires a small amount of guesswork
      */
     public void sendPacket(byte[] data, long stamp, char seqno, int ptype, boolean marker) throws SocketException, IOException {
+        PipelineTimings pt = _timings;
+        if (pt != null) {
+            pt.start(true);
+        }
+        _seqno = guessOutboundIndex(seqno);
+
+        if (_doCrypt) {
+            try {
+                _scOut.deriveKeys(_seqno);
+                if (pt != null) {
+                    pt.lap(PipelineTimings.TX_INDEX);
+                }
+                encrypt(data, (int) _csrcid, _seqno);
+                if (pt != null) {
+                    pt.lap(PipelineTimings.TX_ENCRYPT);
+                }
+                super.sendPacket(data, stamp, _seqno, ptype, marker, true);
+            } catch (GeneralSecurityException ex) {
+                if (pt != null) {
+                    pt.end(true);
+                }
+                _stats.encryptErrors++;
+                Log.error("problem encrypting packet" + ex.getMessage());
+                ex.printStackTrace();
+            }
+        } else if (pt != null) {
+            pt.end(true); // nothing sent, don't leave the mark for the next packet
+        }
+
+    }
+
+    /*
+     work out the roc for an outbound seqno we were handed, allowing for wraps
+     and the odd out of order packet around a wrap.
+     */
+    long guessOutboundIndex(char seqno) {
         int n = roc;
         if (oseq == null) {
             oseq = seqno;
@@ -350,6 +516,7 @@ public class SRTPProtocolImpl extends RTPProtocolImpl {
             // assume we wrapped
             roc++;
             n = roc;
+            SRTPEvents.rocRollover(true, _csrcid, n);
             Log.debug(" wrapped seqno " + (int) seqno + " oseq " + (int) oseq + " diff =" + diff + " outgoing roc =" + n);
 
         }
@@ -362,34 +529,159 @@ public class SRTPProtocolImpl extends RTPProtocolImpl {
         oseq = seqno;
         long low = (long) seqno;
         long high = ((long) n << 16);
-        _seqno = low | high;
+        return low | high;
+    }
 
-        if (_doCrypt) {
-            try {
-                _scOut.deriveKeys(_seqno);
-                encrypt(data, (int) _csrcid, _seqno);
-                super.sendPacket(data, stamp, (char) _seqno, ptype, marker);
-            } catch (GeneralSecurityException ex) {
-                Log.error("problem encrypting packet" + ex.getMessage());
-                ex.printStackTrace();
+    @Override
+    void protectOut(ByteBuffer pkt) throws RTPPacketException {
+        protect(pkt);
+    }
+
+    @Override
+    long unprotectIn(ByteBuffer pkt, char seqno) throws RTPPacketException {
+        return unprotect(pkt);
+    }
+
+    /**
+     * SRTP protect an RTP packet in place. The packet runs from pkt's position
+     * to its limit, the auth tag is written after it so there must be at least
+     * getAuthTailOut() bytes between the limit and the capacity. On return the
+     * limit has moved to the end of the tag, the position is unchanged.
+     * The SSRC and seqno are taken from the packet header, no per packet
+     * allocation is done here so heap or direct buffers straight from the
+     * network are fine.
+     *
+     * @param pkt buffer holding a complete RTP packet
+     * @throws RTPPacketException if the packet is malformed or there is no room for the tag
+     */
+    public void protect(ByteBuffer pkt) throws RTPPacketException {
+        Buffer b = (Buffer) pkt;
+        int start = b.position();
+        int len = b.remaining();
+        int head = getHeaderLength(pkt, start, len);
+        if (b.capacity() - b.limit() < _tailOut) {
+            throw new RTPPacketException("No room for auth tag of " + _tailOut + " bytes");
+        }
+        char seqno = (char) (((pkt.get(start + 2) & 0xff) << 8) | (pkt.get(start + 3) & 0xff));
+        int ssrc = getInt(pkt, start + 8);
+        long idx = guessOutboundIndex(seqno);
+        PipelineTimings pt = _timings;
+        try {
+            _scOut.deriveKeys(idx);
+            if (pt != null) {
+                pt.lap(PipelineTimings.TX_INDEX);
             }
+            if (_scOut.isAead()) {
+                b.limit(b.limit() + _tailOut);
+                _scOut.aeadCrypt(true, pkt, start + head, len - head, start, head, 0, 0, ssrc, idx);
+                if (pt != null) {
+                    pt.lap(PipelineTimings.TX_AUTH); // GCM encrypts and tags in one
+                }
+                return;
+            }
+            if (_doCrypt) {
+                _scOut.decipher(pkt, start + head, len - head, ssrc, idx);
+            }
+            if (pt != null) {
+                pt.lap(PipelineTimings.TX_ENCRYPT);
+            }
+            b.limit(b.limit() + _tailOut);
+            if (_doAuth) {
+                appendAuth(pkt, start, len, (int) (idx >>> 16));
+            }
+            if (pt != null) {
+                pt.lap(PipelineTimings.TX_AUTH);
+            }
+        } catch (GeneralSecurityException ex) {
+            _stats.encryptErrors++;
+            throw new RTPPacketException("Problem protecting packet " + ex.getMessage());
         }
+    }
 
+    /**
+     * SRTP unprotect an SRTP packet in place. The packet runs from pkt's
+     * position to its limit. The packet is checked for replay and
+     * authenticated before being decrypted, and the inbound crypto state is
+     * only updated once all that has succeeded.
+     * On return the limit has been pulled back to exclude the auth tag, the
+     * position is unchanged and the RTP payload is in the clear.
+     *
+     * @param pkt buffer holding a complete SRTP packet
+     * @return the packet index (roc||seqno)
+     * @throws RTPPacketException if the packet is malformed, replayed or not authentic
+     */
+    public long unprotect(ByteBuffer pkt) throws RTPPacketException {
+        try {
+            return unprotectPacket(pkt);
+        } catch (RTPPacketException x) {
+            rejected();
+            throw x;
+        }
     }
 
-    @Override
-    public void sendPacket(byte[] data, long stamp, int ptype, boolean marker) throws SocketException,
-            IOException {
+    private long unprotectPacket(ByteBuffer pkt) throws RTPPacketException {
+        Buffer b = (Buffer) pkt;
+        int start = b.position();
+        int len = b.remaining();
+        int head = getHeaderLength(pkt, start, len);
+        if (len < head + _tailIn) {
+            throw new RTPPacketException("Packet too short for SRTP " + len);
+        }
+        char seqno = (char) (((pkt.get(start + 2) & 0xff) << 8) | (pkt.get(start + 3) & 0xff));
+        int ssrc = getInt(pkt, start + 8);
+        if (ssrc != _sync) {
+            syncChanged(ssrc);
+        }
+        long idx = getIndex(seqno);
+        checkForReplay(idx);
+        PipelineTimings pt = _timings;
+        if (pt != null) {
+            pt.lap(PipelineTimings.RX_INDEX);
+        }
         try {
-            if (_doCrypt) {
-                _scOut.deriveKeys(stamp);
-                encrypt(data, (int) _csrcid, _seqno);
+            _scIn.deriveKeys(0);
+            int clen = len - _tailIn;
+            if (_scIn.isAead()) {
+                try {
+                    _scIn.aeadCrypt(false, pkt, start + head, len - head, start, head, 0, 0, ssrc, idx);
+                } catch (GeneralSecurityException ex) {
+                    authFailed(idx, ex.getMessage()); // GCM only fails on the tag
+                    throw ex;
+                }
+                if (pt != null) {
+                    pt.lap(PipelineTimings.RX_AUTH); // and decrypts as it goes
+                }
+            } else {
+                if (_doAuth) {
+                    checkAuth(pkt, start, len, idx);
+                }
+                if (pt != null) {
+                    pt.lap(PipelineTimings.RX_AUTH);
+                }
+                if (_doCrypt) {
+                    try {
+                        _scIn.decipher(pkt, start + head, clen - head, ssrc, idx);
+                    } catch (GeneralSecurityException ex) {
+                        _stats.decryptErrors++;
+                        throw ex;
+                    }
+                }
+                if (pt != null) {
+                    pt.lap(PipelineTimings.RX_DECRYPT);
+                }
             }
-            super.sendPacket(data, stamp, ptype, marker);
+            b.limit(start + clen);
         } catch (GeneralSecurityException ex) {
-            Log.error("problem encrypting packet" + ex.getMessage());
-            ex.printStackTrace();
+            throw new RTPPacketException("Problem unprotecting packet " + ex.getMessage());
         }
+        _index = idx;
+        updateCounters(seqno);
+        commitStream();
+        return idx;
+    }
+
+    public int getAuthTailOut() {
+        return _tailOut;
     }
 
     static ByteBuffer getPepper(int ssrc, long idx) {
@@ -402,23 +694,19 @@ public class SRTPProtocolImpl extends RTPProtocolImpl {
         return pepper;
     }
 
+    // AEAD suites do their crypto in checkAuth/appendAuth along with the tag.
     private void decrypt(byte[] payload, int ssrc) throws GeneralSecurityException {
-        ByteBuffer in = ByteBuffer.wrap(payload);
-        // aes likes the buffer a multiple of 32 and longer than the input.
-        int pl = (((payload.length / 32) + 2) * 32);
-        ByteBuffer out = ByteBuffer.allocate(pl);
-        ByteBuffer pepper = getPepper(ssrc, _index);
-        _scIn.decipher(in, out, pepper);
-        System.arraycopy(out.array(), 0, payload, 0, payload.length);
+        if (_scIn.isAead()) {
+            return;
+        }
+        _scIn.decipher(ByteBuffer.wrap(payload), 0, payload.length, ssrc, _index);
     }
 
     private void encrypt(byte[] payload, int ssrc, long idx) throws GeneralSecurityException {
-        ByteBuffer in = ByteBuffer.wrap(payload);
-        int pl = (((payload.length / 32) + 2) * 32);
-        ByteBuffer out = ByteBuffer.allocate(pl);
-        ByteBuffer pepper = getPepper(ssrc, idx);
-        _scOut.decipher(in, out, pepper);
-        System.arraycopy(out.array(), 0, payload, 0, payload.length);
+        if (_scOut.isAead()) {
+            return;
+        }
+        _scOut.decipher(ByteBuffer.wrap(payload), 0, payload.length, ssrc, idx);
     }
 
     public static void main(String[] args) {
@@ -451,19 +739,22 @@ public class SRTPProtocolImpl extends RTPProtocolImpl {
 
             //s.testSeqs();
             //s.testRcvSRTP();
-            s.testSendSRTP();
-        } catch (IOException ex) {
-            Log.error(ex.getMessage());
-        }
-        try {
-            Thread.sleep(60000);
-        } catch (InterruptedException ex) {
-            ;
+            s.testBadPackets(cryptoProps);
+            System.out.println("bad packet test ok");
+        } catch (IOException | IllegalStateException ex) {
+            System.out.println("bad packet test failed " + ex.getMessage());
+            System.exit(1);
         }
-        if (s != null) {
-            s.terminate();
+        // against libsrtp's rtpw - only when asked, it waits for you to start it
+        if ((args.length > 0) && args[0].equals("rtpw")) {
+            try {
+                s.testSendSRTP();
+                Thread.sleep(60000);
+            } catch (IOException | InterruptedException ex) {
+                Log.error(ex.getMessage());
+            }
         }
-
+        s.terminate();
     }
 
     private void testRcvSRTP() {
@@ -500,6 +791,68 @@ public class SRTPProtocolImpl extends RTPProtocolImpl {
         startrecv();
     }
 
+    /*
+     tampered, replayed and forged packets must be dropped without moving
+     the index, roc, s_l, replay list or SSRC on - then the real stream
+     carries on. Throws IllegalStateException if not.
+     */
+    private void testBadPackets(Properties cryptoProps) throws IOException {
+        final byte[][] last = new byte[1][];
+        DatagramSocket capture = new DatagramSocket() {
+            @Override
+            public void send(DatagramPacket dp) {
+                last[0] = Arrays.copyOfRange(dp.getData(), dp.getOffset(), dp.getOffset() + dp.getLength());
+            }
+        };
+        SRTPProtocolImpl tx = new SRTPProtocolImpl(_id + 1, capture, null, _ptype, cryptoProps, cryptoProps);
+        char seq = 40000;
+        byte[] good = null;
+        for (int i = 0; i < 10; i++) {
+            tx.sendPacket(new byte[20], 160L * seq, seq++, _ptype, false);
+            good = last[0];
+            parsePacket(new DatagramPacket(good, good.length));
+        }
+        long roc = _roc;
+        char s_l = _s_l;
+        long top = _replay.getTop();
+
+        tx.sendPacket(new byte[20], 160L * seq, seq, _ptype, false);
+        byte[] next = last[0]; // held back till the end
+        byte[] tampered = next.clone();
+        tampered[RTPHEAD + 3] ^= 1;
+        byte[] forged = good.clone(); // seqno that looks like a wrap, tag won't match
+        forged[2] = 0;
+        forged[3] = 100;
+        byte[] stranger = good.clone(); // an SSRC we haven't seen, tag won't match
+        stranger[8] ^= 0x55;
+        byte[][] bad = {tampered, good, forged, stranger};
+        String[] what = {"tampered", "replayed", "forged wrap", "new ssrc"};
+        long index = _index;
+        long sync = _sync;
+        for (int i = 0; i < bad.length; i++) {
+            try {
+                parsePacket(new DatagramPacket(bad[i], bad[i].length));
+                throw new IllegalStateException(what[i] + " packet accepted");
+            } catch (RTPPacketException x) {
+                Log.debug("bad packet test: " + what[i] + " dropped - " + x.getMessage());
+            }
+            if ((_index != index) || (_sync != sync) || (_roc != roc) || (_s_l != s_l) || (_replay.getTop() != top)) {
+                throw new IllegalStateException(what[i] + " packet changed state index=" + _index + " ssrc=" + _sync
+                        + " roc=" + _roc + " s_l=" + (int) _s_l);
+            }
+        }
+        parsePacket(new DatagramPacket(next, next.length));
+        if (_replay.getTop() != top + 1) {
+            throw new IllegalStateException("stream didn't carry on");
+        }
+        RTPStats st = getStats();
+        if ((st.getAuthFailures() != 3) || (st.getReplays() != 1) || (st.getPacketsIn() != 11) || (st.getSsrcChanges() != 0)) {
+            throw new IllegalStateException("counters wrong " + st);
+        }
+        Log.debug("bad packet test done");
+        capture.close();
+    }
+
     private void testSeqs() {
         try {
             char seq = 0;
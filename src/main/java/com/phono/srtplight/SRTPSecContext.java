@@ -23,16 +23,21 @@ import biz.source_code.Base64Coder;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
+import java.util.Arrays;
 import java.util.Properties;
 import javax.crypto.Cipher;
 import javax.crypto.Mac;
-import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 public class SRTPSecContext {
 
-    static int KEYLEN = 16; // 128 bit
+    static int KEYLEN = 16; // 128 bit - default, the 256 bit suites override per context
     static int MACKEYLEN = 20;
+    static int MACLEN = 20; // HmacSHA1 output, before truncation
+    static int AEADTAGLEN = 16; // RFC 7714 - full 128 bit GCM tag
+    static int AEADIVLEN = 12;
     static int BLOCKSZ = 16; // also but possibly different
     private Cipher _anAES;
     protected byte[] _sessionKey = new byte[0];
@@ -41,6 +46,9 @@ public class SRTPSecContext {
     protected byte[] _sessionAuth;
     private int _tag;
     private int _authTail;
+    private int _keyLen = KEYLEN;
+    private int _saltLen = 14;
+    private boolean _aead = false;
     byte[] _masterKey;
     private int _mki;
     private int _mkiLen;
@@ -50,6 +58,59 @@ public class SRTPSecContext {
     private boolean _doCrypt;
     private boolean _in;
     protected String _dirn;
+    /*
+     * keyed primitives are expensive to look up and key, so we keep them
+     * until deriveKeys() actually produces different session keys.
+     * Cipher and Mac are not thread safe, the first thread to use this context
+     * owns the main set, any other thread gets its own via _threadPrims
+     */
+    private volatile int _keyGen = 0; // bumped after the new keys are in place, read by every user
+    private volatile Thread _owner;
+    private KeyedPrimitives _ownerPrims;
+    private final ThreadLocal<KeyedPrimitives> _threadPrims = new ThreadLocal<>();
+
+    static class KeyedPrimitives {
+
+        int gen = -1;
+        Cipher ctr;
+        Cipher gcm;
+        SecretKeySpec key;
+        Mac hmac;
+        final byte[] iv = new byte[BLOCKSZ];
+        final byte[] tag = new byte[MACLEN];
+        byte[] scratch = new byte[0];
+
+        /*
+         * direct buffers can't be handed to the JCE without it allocating
+         * so we stage them through this (thread confined) array
+         */
+        byte[] getScratch(int len) {
+            if (scratch.length < len) {
+                scratch = new byte[Math.max(len, 2048)];
+            }
+            return scratch;
+        }
+
+        void rekey(SRTPSecContext sc) throws GeneralSecurityException {
+            // read the generation before the keys - if they change under us
+            // we end up with the old gen and rekey again next time, never the reverse
+            int g = sc._keyGen;
+            key = new SecretKeySpec(sc._sessionKey, "AES");
+            if (sc._aead) {
+                // GCM does the auth too, so no hmac
+                if (gcm == null) {
+                    gcm = Cipher.getInstance("AES/GCM/NoPadding");
+                }
+            } else {
+                if (ctr == null) {
+                    ctr = Cipher.getInstance("AES/CTR/NoPadding");
+                    hmac = Mac.getInstance("HmacSHA1");
+                }
+                hmac.init(new SecretKeySpec(sc._sessionAuth, "HmacSHA1"));
+            }
+            gen = g;
+        }
+    }
 
     SRTPSecContext(boolean in) {
         _in = in;
@@ -72,6 +133,14 @@ public class SRTPSecContext {
         return _authTail;
     }
 
+    /**
+     * true for the RFC 7714 AES-GCM suites, where the tag comes out of the
+     * cipher and there is no separate HMAC pass.
+     */
+    public boolean isAead() {
+        return _aead;
+    }
+
     public static void main(String argv[]) {
         SRTPSecContext s = new SRTPSecContext();
         try {
@@ -117,6 +186,7 @@ public class SRTPSecContext {
         byte[] hmac_test_case_0_data = saba(hmac_test_case_0_dataS);
         byte[] hmac_test_case_0_tag = saba(hmac_test_case_0_tagS);
         this._sessionAuth = hmac_test_case_0_key;
+        keysChanged();
         Mac m = this.getAuthMac();
         byte[] res = m.doFinal(hmac_test_case_0_data);
         for (int i = 0; i < res.length; i++) {
@@ -131,7 +201,8 @@ public class SRTPSecContext {
         short[] mastersaltS = {0x0E, 0xC6, 0x75, 0xAD, 0x49, 0x8A, 0xFE, 0xEB, 0xB6, 0x96, 0x0B, 0x3A, 0xAB, 0xE6};
         short[] plaintextS = {0x0E, 0xC6, 0x75, 0xAD, 0x49, 0x8A, 0xFE, 0xEB, 0xB6, 0x96, 0x0B, 0x3A, 0xAB, 0xE6, 0x00, 0x00};
         short[] reskeyS = {0xC6, 0x1E, 0x7A, 0x93, 0x74, 0x4F, 0x39, 0xEE, 0x10, 0x73, 0x4A, 0xFE, 0x3F, 0xF7, 0xA0, 0x87};
-        short[] csaltS = {0x30, 0xCB, 0xBC, 0x08, 0x86, 0x3D, 0x8C, 0x85, 0xD4, 0x9D, 0xB3, 0x4A, 0x9A, 0xE1, 0x7A, 0xC6};
+        // the AES-CM output is 30CB..9AE17AC6 but the salt is only the first 14 bytes
+        short[] csaltS = {0x30, 0xCB, 0xBC, 0x08, 0x86, 0x3D, 0x8C, 0x85, 0xD4, 0x9D, 0xB3, 0x4A, 0x9A, 0xE1, 0x00, 0x00};
         short[] authKeyS = {0xCE, 0xBE, 0x32, 0x1F, 0x6F, 0xF7, 0x71, 0x6B, 0x6F, 0xD4, 0xAB, 0x49, 0xAF, 0x25, 0x6A, 0x15, 0x6D, 0x38, 0xBA, 0xA4};
         _masterKey = saba(masterkeyS);
         byte mastersalt[] = saba(mastersaltS);
@@ -181,6 +252,7 @@ public class SRTPSecContext {
         deriveKeys(index,kdr,0,2,1);
     }
     protected void deriveKeys(long index, int kdr,int sess, int salt, int auth) throws GeneralSecurityException {
+        long t0 = SRTPEvents.ON ? System.nanoTime() : 0;
         /*
         The input block for
         AES-CM is generated by exclusive-oring the master salt with the
@@ -193,6 +265,9 @@ public class SRTPSecContext {
          * The resulting value
         is then AES-CM- encrypted using the master key to get the cipher key.
          */
+        byte[] oldKey = _sessionKey;
+        byte[] oldSalt = _cipherSalt;
+        byte[] oldAuth = _sessionAuth;
         byte label = (byte)sess;
         ByteBuffer myinpblk = cloneByteBuffer(_masterSalt);
         ByteBuffer lex = ByteBuffer.allocate(BLOCKSZ);
@@ -200,7 +275,7 @@ public class SRTPSecContext {
         lex.putLong(6, idivk);
         lex.put(7, label);
         bbxor(myinpblk, lex);
-        _sessionKey = getKeyBytes(myinpblk, KEYLEN);
+        _sessionKey = getKeyBytes(myinpblk, _keyLen);
 
         label = (byte)salt;
         myinpblk = cloneByteBuffer(_masterSalt);
@@ -209,81 +284,91 @@ public class SRTPSecContext {
         lex.putLong(6, idivk);
         lex.put(7, label);
         bbxor(myinpblk, lex);
-        _cipherSalt = getKeyBytes(myinpblk, KEYLEN);
+        _cipherSalt = getKeyBytes(myinpblk, BLOCKSZ);
         // now zap the tail bytes
+        for (int i = _saltLen; i < BLOCKSZ; i++) {
+            _cipherSalt[i] = 0;
+        }
 
-        _cipherSalt[14] = 0;
-        _cipherSalt[15] = 0;
 
 
 
+        if (!_aead) {
+            label = (byte) auth;
+            myinpblk = cloneByteBuffer(_masterSalt);
+            lex = ByteBuffer.allocate(BLOCKSZ);
+            idivk = (kdr == 0) ? 0 : index / kdr;
+            lex.putLong(6, idivk);
+            lex.put(7, label);
 
-        label = (byte)auth;
-        myinpblk = cloneByteBuffer(_masterSalt);
-        lex = ByteBuffer.allocate(BLOCKSZ);
-        idivk = (kdr == 0) ? 0 : index / kdr;
-        lex.putLong(6, idivk);
-        lex.put(7, label);
-
-        bbxor(myinpblk, lex);
+            bbxor(myinpblk, lex);
 
-        _sessionAuth = getKeyBytes(myinpblk, MACKEYLEN);
+            _sessionAuth = getKeyBytes(myinpblk, MACKEYLEN);
+        }
+        boolean changed = !Arrays.equals(oldKey, _sessionKey) || !Arrays.equals(oldSalt, _cipherSalt)
+                || !Arrays.equals(oldAuth, _sessionAuth);
+        if (changed) {
+            keysChanged();
+        }
+        if (SRTPEvents.ON) {
+            SRTPEvents.keyDerivation(sess != 0, _in, index, kdr, changed, System.nanoTime() - t0);
+        }
         if (Log.getLevel() > Log.DEBUG) {
             Log.verb(_dirn + "Derive keys for index = " + index + " kdr =" + kdr);
             Log.verb(_dirn + "Session Key = " + SRTPProtocolImpl.getHex(_sessionKey));
             Log.verb(_dirn + "CipherSalt Key = " + SRTPProtocolImpl.getHex(_cipherSalt));
-            Log.verb(_dirn + "Auth Key = " + SRTPProtocolImpl.getHex(_sessionAuth));
+            if (!_aead) {
+                Log.verb(_dirn + "Auth Key = " + SRTPProtocolImpl.getHex(_sessionAuth));
+            }
         }
     }
 
     /*
-     *
-     * repeatedly encrypt the salt - and a counter
-     * resulting in a pseudo random stream of bytes of
-     * the required length.
-     * (but predictable if you have the key and salt)
+     * PRF_n(k_master, x) - AES counter mode keyed by the master key (128 or 256 bit)
+     * with IV = x * 2^16, keystream truncated to want bytes.
+     * Same CTR engine as the packet path.
+     */
+    protected byte[] getKeyBytes(ByteBuffer inp, int want) throws GeneralSecurityException {
+        if (_anAES == null) {
+            _anAES = Cipher.getInstance("AES/CTR/NoPadding");
+        }
+        inp.putChar(14, (char) 0);
+        _anAES.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(_masterKey, "AES"),
+                new IvParameterSpec(inp.array(), 0, BLOCKSZ));
+        return _anAES.doFinal(new byte[want]);
+    }
+
+    /**
+     * called whenever the session keys are replaced, invalidates the cached
+     * Cipher and Mac instances for all threads.
      */
-    void getCypherStreamBytes(Cipher aes, ByteBuffer asalt, ByteBuffer stream) throws GeneralSecurityException {
-        int blocksz = 128 / 8;
-        ByteBuffer slop;
-
-        int toget = stream.capacity() - 32; // ensuring that there are 16bytes of overhead
-        ((Buffer)stream).position(0);
-        int blks = toget / blocksz;
-        char bno = 0;
-        // repeatedly encrypt the salt (and some pepper)
-        // where the pepper is 16bit unsigned int at the end of the 128 bit int
-        // the pepper increments once with each round.
-        // tedious issue where aes won't crypt unless there are 32 bytes to go in stream.
-
-        for (; bno < blks; bno++) {
-            asalt.putChar(14, bno);
-            ((Buffer)asalt).position(0);
-            aes.update(asalt, stream);
-        }
-        // now finish off the < 128 bits at the end.
-        asalt.putChar(14, bno);
-        ((Buffer)asalt).position(0);
-        aes.doFinal(asalt, stream);
+    void keysChanged() {
+        _keyGen++;
     }
 
-    protected byte[] getKeyBytes(ByteBuffer inp, int want) throws GeneralSecurityException {
-        int blocksz = 128 / 8;
-        byte[] ret = null;
-        if (want == blocksz) {
-            // odd special case where crypto wants bigger bucket
-            ByteBuffer slop = ByteBuffer.allocate(want * 2);
-            inp.putChar(14, (char) 0);
-            ((Buffer)inp).position(0);
-            _anAES.doFinal(inp, slop);
-            ret = new byte[want];
-            ((Buffer)slop).position(0);
-            slop.get(ret);
+    KeyedPrimitives getPrimitives() throws GeneralSecurityException {
+        Thread me = Thread.currentThread();
+        if (_owner == null) {
+            synchronized (this) {
+                if (_owner == null) {
+                    _ownerPrims = new KeyedPrimitives();
+                    _owner = me;
+                }
+            }
+        }
+        KeyedPrimitives ret;
+        if (_owner == me) {
+            ret = _ownerPrims;
         } else {
-            ByteBuffer stream = ByteBuffer.allocate(want + 32);
-            getCypherStreamBytes(_anAES, inp, stream);
-            ret = new byte[want];
-            System.arraycopy(stream.array(), 0, ret, 0, want);
+            // fallback - some other thread is using this context.
+            ret = _threadPrims.get();
+            if (ret == null) {
+                ret = new KeyedPrimitives();
+                _threadPrims.set(ret);
+            }
+        }
+        if (ret.gen != _keyGen) {
+            ret.rekey(this);
         }
         return ret;
     }
@@ -292,21 +377,26 @@ public class SRTPSecContext {
         if (Log.getLevel() > Log.DEBUG) {
             Log.verb(_dirn + "getting Hmac key = " + SRTPProtocolImpl.getHex(_sessionAuth));
         }
-        SecretKey key = new SecretKeySpec(this._sessionAuth, "HmacSHA1");
-        Mac m = Mac.getInstance("HmacSHA1");
-        m.init(key);
+        Mac m = getPrimitives().hmac;
+        m.reset();
         return m;
     }
 
-    void decipher(ByteBuffer in, ByteBuffer out, ByteBuffer pepper) throws GeneralSecurityException {
-
-
-        SecretKeySpec keyp = new SecretKeySpec(_sessionKey, "AES");
-
-        Cipher aes = Cipher.getInstance("AES"); // perhaps AES/None/NoPadding or ""
-        aes.init(Cipher.ENCRYPT_MODE, keyp);
+    /**
+     * AES counter mode en/decrypt len bytes of data starting at (absolute)
+     * offs in place. The JCE's AES/CTR does the keystream generation and the
+     * xor in one (usually intrinsic accelerated) pass.
+     * SRTP's 16 bit block counter lives in the bottom 2 bytes of the IV which
+     * start at zero, so CTR's 128 bit increment gives the same keystream for
+     * any packet shorter than 2^16 blocks.
+     * data's position and limit are left unchanged.
+     */
+    void decipher(ByteBuffer data, int offs, int len, int ssrc, long index) throws GeneralSecurityException {
+        KeyedPrimitives prims = getPrimitives();
         if (Log.getLevel() > Log.DEBUG) {
             Log.verb(_dirn + "decipher: key    =" + SRTPProtocolImpl.getHex(_sessionKey));
+            Log.verb(_dirn + "decipher: salt   =" + SRTPProtocolImpl.getHex(_cipherSalt));
+            Log.verb(_dirn + "decipher: ssrc   =" + Integer.toHexString(ssrc) + " index =" + Long.toHexString(index));
         }
 
         /*
@@ -316,37 +406,156 @@ public class SRTPSecContext {
         IV = (k_s * 2^16) XOR (SSRC * 2^64) XOR (i * 2^16)
          *
          */
-        ByteBuffer csalt = ByteBuffer.wrap(_cipherSalt);
-        if (Log.getLevel() > Log.DEBUG) {
-            Log.verb(_dirn + "decipher: salt   =" + SRTPProtocolImpl.getHex(csalt.array()));
+        byte[] iv = prims.iv;
+        System.arraycopy(_cipherSalt, 0, iv, 0, BLOCKSZ);
+        for (int i = 0; i < 4; i++) {
+            iv[4 + i] ^= (byte) (ssrc >>> (24 - (8 * i)));
         }
-        if (Log.getLevel() > Log.DEBUG) {
-            Log.verb(_dirn + "decipher: pepper =" + SRTPProtocolImpl.getHex(pepper.array()));
+        long sindex = index << 16;
+        for (int i = 0; i < 8; i++) {
+            iv[8 + i] ^= (byte) (sindex >>> (56 - (8 * i)));
         }
-
-
-        bbxor(pepper, csalt);
         if (Log.getLevel() > Log.DEBUG) {
-            Log.verb(_dirn + "decipher: IV     =" + SRTPProtocolImpl.getHex(pepper.array()));
+            Log.verb(_dirn + "decipher: IV     =" + SRTPProtocolImpl.getHex(iv));
+        }
+        Cipher ctr = prims.ctr;
+        ctr.init(Cipher.ENCRYPT_MODE, prims.key, new IvParameterSpec(iv));
+        if (data.hasArray()) {
+            byte[] a = data.array();
+            int aoffs = data.arrayOffset() + offs;
+            ctr.doFinal(a, aoffs, len, a, aoffs);
+        } else {
+            byte[] sc = prims.getScratch(len);
+            for (int i = 0; i < len; i++) {
+                sc[i] = data.get(offs + i);
+            }
+            ctr.doFinal(sc, 0, len, sc, 0);
+            for (int i = 0; i < len; i++) {
+                data.put(offs + i, sc[i]);
+            }
         }
+    }
 
-        if (Log.getLevel() > Log.DEBUG) {
-            Log.verb(_dirn + "decipher: in     =" + SRTPProtocolImpl.getHex(in.array()));
+    /**
+     * RFC 7714 AES-GCM seal (or open) len bytes of data at (absolute) offs in
+     * place. When sealing the 16 byte tag is written directly after the
+     * ciphertext so there must be room for it; when opening len includes the
+     * tag and an AEADBadTagException is thrown if it doesn't match.
+     * The additional authenticated data is the aadLen bytes at aadOffs followed
+     * by the aad2Len bytes at aad2Offs (SRTCP puts its index word after the tag).
+     *
+     * IV = (0x0000 || SSRC || index) XOR salt where index is the 48 bit
+     * ROC||SEQ for SRTP and 0||SRTCP index for SRTCP - same arithmetic for both.
+     */
+    void aeadCrypt(boolean seal, ByteBuffer data, int offs, int len, int aadOffs, int aadLen,
+            int aad2Offs, int aad2Len, int ssrc, long index) throws GeneralSecurityException {
+        KeyedPrimitives prims = getPrimitives();
+        byte[] iv = prims.iv;
+        System.arraycopy(_cipherSalt, 0, iv, 0, AEADIVLEN);
+        for (int i = 0; i < 4; i++) {
+            iv[2 + i] ^= (byte) (ssrc >>> (24 - (8 * i)));
+        }
+        for (int i = 0; i < 6; i++) {
+            iv[6 + i] ^= (byte) (index >>> (40 - (8 * i)));
         }
-        getCypherStreamBytes(aes, pepper, out);
         if (Log.getLevel() > Log.DEBUG) {
-            Log.verb(_dirn + "decipher: stream =" + SRTPProtocolImpl.getHex(out.array()));
+            Log.verb(_dirn + "aead: IV     =" + SRTPProtocolImpl.getHex(iv, AEADIVLEN));
+        }
+        Cipher gcm = prims.gcm;
+        gcm.init(seal ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, prims.key,
+                new GCMParameterSpec(AEADTAGLEN * 8, iv, 0, AEADIVLEN));
+        aadUpdate(prims, data, aadOffs, aadLen);
+        if (aad2Len > 0) {
+            aadUpdate(prims, data, aad2Offs, aad2Len);
+        }
+        if (data.hasArray()) {
+            byte[] a = data.array();
+            int aoffs = data.arrayOffset() + offs;
+            gcm.doFinal(a, aoffs, len, a, aoffs);
+        } else {
+            int olen = seal ? len + AEADTAGLEN : len;
+            byte[] sc = prims.getScratch(olen);
+            for (int i = 0; i < len; i++) {
+                sc[i] = data.get(offs + i);
+            }
+            int got = gcm.doFinal(sc, 0, len, sc, 0);
+            for (int i = 0; i < got; i++) {
+                data.put(offs + i, sc[i]);
+            }
         }
+    }
 
-        bbxor(out, in);
-        if (Log.getLevel() > Log.DEBUG) {
-            Log.verb(_dirn + "decipher: xor    =" + SRTPProtocolImpl.getHex(out.array()));
+    private void aadUpdate(KeyedPrimitives prims, ByteBuffer data, int offs, int len) {
+        if (data.hasArray()) {
+            prims.gcm.updateAAD(data.array(), data.arrayOffset() + offs, len);
+        } else {
+            byte[] sc = prims.getScratch(len);
+            for (int i = 0; i < len; i++) {
+                sc[i] = data.get(offs + i);
+            }
+            prims.gcm.updateAAD(sc, 0, len);
+        }
+    }
+
+    /**
+     * HmacSHA1 over len bytes of data from (absolute) offs followed by the
+     * 32 bit roc as SRTP requires.
+     * The returned array is reused by the next call on this thread.
+     */
+    byte[] getAuthTag(ByteBuffer data, int offs, int len, int roc) throws GeneralSecurityException {
+        KeyedPrimitives prims = getPrimitives();
+        Mac m = prims.hmac;
+        m.reset();
+        macUpdate(prims, data, offs, len);
+        m.update((byte) (roc >>> 24));
+        m.update((byte) (roc >>> 16));
+        m.update((byte) (roc >>> 8));
+        m.update((byte) roc);
+        m.doFinal(prims.tag, 0);
+        return prims.tag;
+    }
+
+    /**
+     * HmacSHA1 over len bytes of data from (absolute) offs - SRTCP flavour
+     * where the index is already in the authenticated portion.
+     * The returned array is reused by the next call on this thread.
+     */
+    byte[] getAuthTag(ByteBuffer data, int offs, int len) throws GeneralSecurityException {
+        KeyedPrimitives prims = getPrimitives();
+        Mac m = prims.hmac;
+        m.reset();
+        macUpdate(prims, data, offs, len);
+        m.doFinal(prims.tag, 0);
+        return prims.tag;
+    }
+
+    private void macUpdate(KeyedPrimitives prims, ByteBuffer data, int offs, int len) {
+        if (data.hasArray()) {
+            prims.hmac.update(data.array(), data.arrayOffset() + offs, len);
+        } else {
+            byte[] sc = prims.getScratch(len);
+            for (int i = 0; i < len; i++) {
+                sc[i] = data.get(offs + i);
+            }
+            prims.hmac.update(sc, 0, len);
         }
+    }
 
+    /**
+     * compare the first len bytes of tag against the bytes in data at offs.
+     * Deliberately looks at every byte, so the time taken says nothing about
+     * where the first mismatch was.
+     */
+    static boolean tagMatches(byte[] tag, ByteBuffer data, int offs, int len) {
+        int diff = 0;
+        for (int i = 0; i < len; i++) {
+            diff |= tag[i] ^ data.get(offs + i);
+        }
+        return diff == 0;
     }
 
     boolean haveKeys() {
-        return ((_sessionAuth != null) && (_sessionKey != null) && (this._cipherSalt != null));
+        return ((_aead || (_sessionAuth != null)) && (_sessionKey != null) && (this._cipherSalt != null));
     }
 
     static String stripQ(String s) {
@@ -373,6 +582,23 @@ public class SRTPSecContext {
             _authTail = 10;
         } else if (crypto_suite.equals("AES_CM_128_HMAC_SHA1_32")) {
             _authTail = 4;
+        } else if (crypto_suite.equals("AES_256_CM_HMAC_SHA1_80")) {
+            // RFC 6188 - same transform, 256 bit master and session keys
+            _keyLen = 32;
+            _authTail = 10;
+        } else if (crypto_suite.equals("AES_256_CM_HMAC_SHA1_32")) {
+            _keyLen = 32;
+            _authTail = 4;
+        } else if (crypto_suite.equals("AEAD_AES_128_GCM")) {
+            // RFC 7714 - 96 bit salt, 128 bit tag
+            _aead = true;
+            _saltLen = AEADIVLEN;
+            _authTail = AEADTAGLEN;
+        } else if (crypto_suite.equals("AEAD_AES_256_GCM")) {
+            _aead = true;
+            _keyLen = 32;
+            _saltLen = AEADIVLEN;
+            _authTail = AEADTAGLEN;
         } else {
             throw new GeneralSecurityException("Unsupported crypto suite " + crypto_suite);
         }
@@ -400,16 +626,15 @@ public class SRTPSecContext {
             }
             //Log.debug(_dirn + "key n salt =" + ks);
             byte mks[] = Base64Coder.decode(ks);
-            if (mks.length != 30) {
-                throw new GeneralSecurityException("Master ket/salt too short - expecting 30 got" + mks.length);
+            int mksl = _keyLen + _saltLen;
+            if (mks.length != mksl) {
+                throw new GeneralSecurityException("Master key/salt wrong length - expecting " + mksl + " got " + mks.length);
             }
-            _masterKey = new byte[16];
+            _masterKey = new byte[_keyLen];
             System.arraycopy(mks, 0, _masterKey, 0, _masterKey.length);
-            SecretKeySpec keyp = new SecretKeySpec(_masterKey, "AES");
-            _anAES = Cipher.getInstance("AES"); // perhaps AES/None/NoPadding or ""
-            _anAES.init(Cipher.ENCRYPT_MODE, keyp);
-            _masterSalt = ByteBuffer.allocate(KEYLEN);
-            _masterSalt.put(mks, _masterKey.length, 14);
+            // shorter (GCM) salts are left aligned and zero padded - as libsrtp does.
+            _masterSalt = ByteBuffer.allocate(BLOCKSZ);
+            _masterSalt.put(mks, _masterKey.length, _saltLen);
 
 
             if (mkil != null) {
@@ -59,7 +59,9 @@ public class REMB {
                 int exp = (val & 0xfc0000) >> 18;
                 int ssrcn = (val & 0xf0000000) >> 24;
                 bwe = mant << exp;
-                Log.verb("bwe =" + bwe + " mant =" + mant + " exp=" + exp + " srcn=" + ssrcn+ " ssrc = "+ssrc);
+                if (Log.getLevel() > Log.DEBUG) {
+                    Log.verb("bwe =" + bwe + " mant =" + mant + " exp=" + exp + " srcn=" + ssrcn + " ssrc = " + ssrc);
+                }
             } else {
                 Log.warn("not remb");
             }
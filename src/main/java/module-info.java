@@ -1,4 +1,5 @@
 module com.phono.srtplight {
+    requires static jdk.jfr;
     exports com.phono.srtplight;
     exports biz.source_code;
     exports com.phono.srtplight.rtcp;